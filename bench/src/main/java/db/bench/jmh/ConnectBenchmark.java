@@ -0,0 +1,49 @@
+/**
+ * ConnectBenchmark.java
+ * JMH version of the JdbcBenchmark "connect" group: SELECT 1 on a new
+ * DriverManager connection vs a connection borrowed from ConnectionPool.
+ *
+ * Run with: java -jar target/benchmarks.jar ConnectBenchmark
+ */
+
+package db.bench.jmh;
+
+import java.sql.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConnectBenchmark
+{
+    @Benchmark
+    public int driverManager(PostgresState db) throws SQLException
+    {
+        try (Connection conn = DriverManager.getConnection(db.url, db.user, db.password))
+        {
+            return selectOne(conn);
+        }
+    }
+
+    @Benchmark
+    public int pooled(PostgresState db) throws SQLException
+    {
+        try (Connection conn = db.pool.getConnection())
+        {
+            return selectOne(conn);
+        }
+    }
+
+    private static int selectOne(Connection conn) throws SQLException
+    {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT 1"))
+        {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
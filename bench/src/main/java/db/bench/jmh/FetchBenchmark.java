@@ -0,0 +1,57 @@
+/**
+ * FetchBenchmark.java
+ * JMH version of the JdbcBenchmark "fetch" group: SELECT every seeded
+ * student with the default fetch (whole result buffered in memory) vs a
+ * cursor read through StudentReader. Scores are per full scan of the
+ * table, which holds bench.seedRows rows on the embedded database.
+ *
+ * Run with: java -jar target/benchmarks.jar FetchBenchmark
+ */
+
+package db.bench.jmh;
+
+import db.students.StudentReader;
+import java.sql.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FetchBenchmark
+{
+    private StudentReader reader;
+
+    @Setup(Level.Trial)
+    public void setUp(PostgresState db)
+    {
+        reader = new StudentReader(db.pool, 1_000);
+    }
+
+    @Benchmark
+    public void defaultFetch(PostgresState db, Blackhole bh) throws SQLException
+    {
+        try (Connection conn = db.pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, name, age, email FROM students"))
+        {
+            while (rs.next())
+            {
+                bh.consume(rs.getInt(1));
+                bh.consume(rs.getString(2));
+                bh.consume(rs.getInt(3));
+                bh.consume(rs.getString(4));
+            }
+        }
+    }
+
+    @Benchmark
+    public long cursorFetch(Blackhole bh) throws SQLException
+    {
+        return reader.forEach(bh::consume);
+    }
+}
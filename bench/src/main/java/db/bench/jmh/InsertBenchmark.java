@@ -0,0 +1,84 @@
+/**
+ * InsertBenchmark.java
+ * JMH version of the JdbcBenchmark "insert" group: bench.insertRows rows
+ * per invocation, written with one executeUpdate per row, with StudentWriter
+ * batches and with StudentCopyLoader (COPY). Scores are per row.
+ *
+ * The rows each iteration adds are deleted after it, so every iteration
+ * starts from the seeded table.
+ *
+ * Run with: java -jar target/benchmarks.jar InsertBenchmark
+ */
+
+package db.bench.jmh;
+
+import db.students.Student;
+import db.students.StudentCopyLoader;
+import db.students.StudentWriter;
+import db.students.WriteReport;
+import java.sql.*;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InsertBenchmark
+{
+    static final int ROWS = 1_000;
+
+    private StudentWriter writer;
+    private StudentCopyLoader copy;
+
+    @Setup(Level.Trial)
+    public void setUp(PostgresState db)
+    {
+        writer = new StudentWriter(db.pool, 500);
+        copy = new StudentCopyLoader(db.pool);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteInserted(PostgresState db) throws SQLException
+    {
+        db.deleteInsertedRows();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int executeUpdatePerRow(PostgresState db) throws SQLException
+    {
+        int inserted = 0;
+        try (Connection conn = db.pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO students (name, age, email) VALUES (?, ?, ?)"))
+        {
+            Iterator<Student> it = PostgresState.students(ROWS).iterator();
+            while (it.hasNext())
+            {
+                Student s = it.next();
+                ps.setString(1, s.name());
+                ps.setInt(2, s.age());
+                ps.setString(3, s.email());
+                inserted += ps.executeUpdate();
+            }
+        }
+        return inserted;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public WriteReport studentWriter() throws SQLException
+    {
+        return writer.write(PostgresState.students(ROWS));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public WriteReport copy() throws SQLException
+    {
+        return copy.load(PostgresState.students(ROWS));
+    }
+}
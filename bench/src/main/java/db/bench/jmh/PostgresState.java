@@ -0,0 +1,138 @@
+/**
+ * PostgresState.java
+ * The database every JMH benchmark in this package runs against.
+ *
+ * Each fork starts its own embedded PostgreSQL (zonky embedded-postgres:
+ * real PostgreSQL binaries, fetched as a Maven artifact, in a temp
+ * directory), creates the students table from databases/examples/example1.sql
+ * and seeds it with bench.seedRows students. It is stopped again when the
+ * fork ends, so every run starts from the same empty database.
+ *
+ * With -Dbench.url=... (plus bench.user / bench.password) an existing
+ * database is used instead; rows written there use "bench-" emails and are
+ * deleted at the end.
+ */
+
+package db.bench.jmh;
+
+import db.ConnectionPool;
+import db.students.Student;
+import db.students.StudentCopyLoader;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import java.io.IOException;
+import java.sql.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.*;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Benchmark)
+public class PostgresState
+{
+    static final int SEED_ROWS = Integer.getInteger("bench.seedRows", 10_000);
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private EmbeddedPostgres embedded;
+    String url;
+    String user;
+    String password;
+    ConnectionPool pool;
+    int maxId;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException, SQLException
+    {
+        url = System.getProperty("bench.url");
+        if (url == null)
+        {
+            embedded = EmbeddedPostgres.builder().start();
+            url = embedded.getJdbcUrl("postgres", "postgres");
+            user = "postgres";
+            password = "";
+        }
+        else
+        {
+            user = System.getProperty("bench.user", "");
+            password = System.getProperty("bench.password", "");
+        }
+
+        pool = ConnectionPool.builder(url, user, password)
+                .maxSize(Runtime.getRuntime().availableProcessors() + 1)
+                .build();
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement())
+        {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS students ("
+                    + " id SERIAL PRIMARY KEY,"
+                    + " name VARCHAR(100) NOT NULL,"
+                    + " age INT,"
+                    + " email VARCHAR(100) UNIQUE)");
+        }
+        int missing = SEED_ROWS - queryInt("SELECT count(*) FROM students");
+        if (missing > 0)
+        {
+            new StudentCopyLoader(pool).load(students(missing));
+        }
+        maxId = Math.max(1, queryInt("SELECT coalesce(max(id), 1) FROM students"));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException, SQLException
+    {
+        try
+        {
+            if (embedded == null)
+            {
+                deleteBenchRows();
+            }
+        }
+        finally
+        {
+            pool.close();
+            if (embedded != null)
+            {
+                embedded.close();
+            }
+        }
+    }
+
+    /** New students with emails no other call returns, so inserts never hit the UNIQUE constraint. */
+    static Stream<Student> students(int rows)
+    {
+        long batch = SEQUENCE.incrementAndGet();
+        long run = ProcessHandle.current().pid();
+        return IntStream.range(0, rows).mapToObj(i -> Student.of(
+                "Bench " + i, 18 + i % 10, "bench-" + run + "-" + batch + "-" + i + "@example.com"));
+    }
+
+    /** Removes what the insert benchmarks added beyond the seed, so the table size stays put. */
+    void deleteInsertedRows() throws SQLException
+    {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement("DELETE FROM students WHERE id > ? AND email LIKE 'bench-%'"))
+        {
+            ps.setInt(1, maxId);
+            ps.executeUpdate();
+        }
+    }
+
+    private void deleteBenchRows() throws SQLException
+    {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement())
+        {
+            stmt.executeUpdate("DELETE FROM students WHERE email LIKE 'bench-%'");
+        }
+    }
+
+    private int queryInt(String sql) throws SQLException
+    {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql))
+        {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
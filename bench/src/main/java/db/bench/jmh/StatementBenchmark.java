@@ -0,0 +1,84 @@
+/**
+ * StatementBenchmark.java
+ * JMH version of the JdbcBenchmark "statement" group: lookup by id with
+ * concatenated SQL in a Statement vs one reused PreparedStatement.
+ *
+ * Each benchmark thread borrows its own pooled connection for the whole
+ * trial, and both variants run on that same handle, so the only difference
+ * measured is how the SQL reaches the server.
+ *
+ * Run with: java -jar target/benchmarks.jar StatementBenchmark
+ */
+
+package db.bench.jmh;
+
+import java.sql.*;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementBenchmark
+{
+    static final String SELECT_BY_ID = "SELECT id, name, age, email FROM students WHERE id = ";
+
+    @State(Scope.Thread)
+    public static class Session
+    {
+        Connection conn;
+        PreparedStatement byId;
+        SplittableRandom random;
+        int maxId;
+
+        @Setup(Level.Trial)
+        public void open(PostgresState db) throws SQLException
+        {
+            conn = db.pool.getConnection();
+            byId = conn.prepareStatement(SELECT_BY_ID + "?");
+            random = new SplittableRandom(42);
+            maxId = db.maxId;
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws SQLException
+        {
+            try
+            {
+                byId.close();
+            }
+            finally
+            {
+                conn.close();
+            }
+        }
+
+        int nextId()
+        {
+            return 1 + random.nextInt(maxId);
+        }
+    }
+
+    @Benchmark
+    public String statement(Session session) throws SQLException
+    {
+        try (Statement stmt = session.conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SELECT_BY_ID + session.nextId()))
+        {
+            return rs.next() ? rs.getString(2) : null;
+        }
+    }
+
+    @Benchmark
+    public String preparedStatement(Session session) throws SQLException
+    {
+        session.byId.setInt(1, session.nextId());
+        try (ResultSet rs = session.byId.executeQuery())
+        {
+            return rs.next() ? rs.getString(2) : null;
+        }
+    }
+}
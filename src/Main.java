@@ -1,40 +1,29 @@
-import java.io.*;
-import java.sql.*;
-import java.util.*;
+import db.Database;
+import db.Pipeline;
+import db.TransactionTemplate;
 
 import java.sql.*;
 
 public class Main {
     public static void main(String[] args) {
-        String url = "jdbc:postgresql://localhost:5432/school_db";
-        String user = "postgres";
-        String password = "your_password";
-
-        try (Connection conn = DriverManager.getConnection(url, user, password)) {
-            conn.setAutoCommit(false); // Start transaction manually
-
-            try (Statement stmt = conn.createStatement()) {
-                stmt.executeUpdate("UPDATE accounts SET balance = balance - 200 WHERE name = 'Alice'");
-                stmt.executeUpdate("UPDATE accounts SET balance = balance + 200 WHERE name = 'Bob'");
+        try {
+            // Commits if both updates succeed, rolls back otherwise,
+            // and runs the transfer again if it hit a deadlock or serialization failure.
+            // Both updates go to the database in one round trip, then one more for COMMIT.
+            TransactionTemplate tx = new TransactionTemplate(Database.getDataSource())
+                    .withIsolation(Connection.TRANSACTION_READ_COMMITTED);
 
-                conn.commit(); // ✅ Commit if all succeed
-                System.out.println("✅ Transaction committed successfully!");
-            } catch (SQLException e)
-            {
-                System.out.println("⚠️ Error during transaction: " + e.getMessage());
-                try
-                {
-                    conn.rollback(); // Try to roll back safely
-                    System.out.println("↩️ Transaction rolled back.");
-                } catch (SQLException rollbackEx)
-                {
-                    System.out.println("❌ Rollback failed: " + rollbackEx.getMessage());
-                }
-            }
+            tx.execute(conn -> new Pipeline()
+                    .add("UPDATE accounts SET balance = balance - ? WHERE name = ?", 200, "Alice")
+                    .add("UPDATE accounts SET balance = balance + ? WHERE name = ?", 200, "Bob")
+                    .execute(conn));
 
+            System.out.println("✅ Transaction committed successfully!");
+            System.out.println("📊 " + tx.stats());
         } catch (SQLException e)
         {
-            System.out.println("❌ Connection error: " + e.getMessage());
+            System.out.println("⚠️ Error during transaction: " + e.getMessage());
+            System.out.println("↩️ Transaction rolled back.");
         }
     }
 }
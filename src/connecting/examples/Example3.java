@@ -13,29 +13,18 @@
  */
 
 package connecting.examples;
+import db.Config;
 import java.sql.*;
 import java.util.*;
-import java.io.*;
 
 public class Example3
 {
     public static void main(String[] args)
     {
-        Properties props = new Properties();
-        String filePath = "resources" + File.separator + "config.properties";
-        try (FileInputStream fis = new FileInputStream(filePath))
-        {
-            props.load(fis);
-        }
-        catch (IOException e)
-        {
-            System.out.println("⚠️ Failed to read configuration: " + e.getMessage());
-            return;
-        }
-
-        String url = props.getProperty("db.url");
-        String user = props.getProperty("db.user");
-        String password = props.getProperty("db.password");
+        Config config = Config.get();
+        String url = config.url();
+        String user = config.user();
+        String password = config.password();
 
         try (Connection conn = DriverManager.getConnection(url, user, password);
              Scanner scanner = new Scanner(System.in)) {
@@ -44,18 +33,21 @@ public class Example3
             String name = scanner.nextLine();
 
             String sql = "SELECT * FROM students WHERE name = ?";
-            PreparedStatement ps = conn.prepareStatement(sql);
-            ps.setString(1, name);
-
-            ResultSet rs = ps.executeQuery();
-
-            if (rs.next())
-            {
-                System.out.println("🎓 Found student: " + rs.getString("name"));
-            }
-            else
+            try (PreparedStatement ps = conn.prepareStatement(sql))
             {
-                System.out.println("❌ Student not found.");
+                ps.setString(1, name);
+
+                try (ResultSet rs = ps.executeQuery())
+                {
+                    if (rs.next())
+                    {
+                        System.out.println("🎓 Found student: " + rs.getString("name"));
+                    }
+                    else
+                    {
+                        System.out.println("❌ Student not found.");
+                    }
+                }
             }
 
         }
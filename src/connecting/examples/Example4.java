@@ -9,38 +9,27 @@
  * Prevents SQL injection
  * Uses parameter binding (`ps.setString`, `ps.setInt`)
  * `executeUpdate()` returns how many rows were inserted
+ * `getGeneratedKeys()` returns the new id in the same round trip
  */
 
 package connecting.examples;
 
+import db.Config;
 import java.sql.*;
-import java.util.*;
-import java.io.*;
 
 public class Example4
 {
     public static void main(String[] args)
     {
-        Properties props = new Properties();
-        String filePath = "resources" + File.separator + "config.properties";
-        try (FileInputStream fis = new FileInputStream(filePath))
-        {
-            props.load(fis);
-        }
-        catch (IOException e)
-        {
-            System.out.println("⚠️ Failed to read configuration: " + e.getMessage());
-            return;
-        }
-
-        String url = props.getProperty("db.url");
-        String user = props.getProperty("db.user");
-        String password = props.getProperty("db.password");
+        Config config = Config.get();
+        String url = config.url();
+        String user = config.user();
+        String password = config.password();
 
         String sql = "INSERT INTO students (name, age, email) VALUES (?, ?, ?)";
 
         try (Connection conn = DriverManager.getConnection(url, user, password);
-             PreparedStatement ps = conn.prepareStatement(sql))
+             PreparedStatement ps = conn.prepareStatement(sql, new String[] { "id" }))
         {
 
             ps.setString(1, "Daniel");
@@ -50,6 +39,14 @@ public class Example4
             int rowsInserted = ps.executeUpdate();
             System.out.println("✅ Rows inserted: " + rowsInserted);
 
+            try (ResultSet keys = ps.getGeneratedKeys())
+            {
+                if (keys.next())
+                {
+                    System.out.println("🆔 New student id: " + keys.getInt(1));
+                }
+            }
+
         }
         catch (SQLException e)
         {
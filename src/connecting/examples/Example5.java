@@ -13,29 +13,17 @@
 
 package connecting.examples;
 
-import java.io.*;
+import db.Config;
 import java.sql.*;
-import java.util.*;
 
 public class Example5
 {
     public static void main(String[] args)
     {
-        Properties props = new Properties();
-        String filePath = "resources" + File.separator + "config.properties";
-        try (FileInputStream fis = new FileInputStream(filePath))
-        {
-            props.load(fis);
-        }
-        catch (IOException e)
-        {
-            System.out.println("⚠️ Failed to read configuration: " + e.getMessage());
-            return;
-        }
-
-        String url = props.getProperty("db.url");
-        String user = props.getProperty("db.user");
-        String password = props.getProperty("db.password");
+        Config config = Config.get();
+        String url = config.url();
+        String user = config.user();
+        String password = config.password();
 
         String sql = "INSERT INTO students (name, age, email) VALUES (?, ?, ?)";
 
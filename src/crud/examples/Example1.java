@@ -1,34 +1,17 @@
 package crud.examples;
 
-import java.io.*;
+import db.Database;
 import java.sql.*;
-import java.util.*;
 
 public class Example1
 {
     public static void main(String[] args)
     {
-        Properties props = new Properties();
-        String filePath = "resources" + File.separator + "config.properties";
-        try (FileInputStream fis = new FileInputStream(filePath))
-        {
-            // Load the properties file
-            props.load(fis);
-        }
-        catch (IOException e)
-        {
-            System.out.println("Could not read config file: " + e.getMessage());
-            return;
-        }
-
-        // Get values from properties file
-        String url = props.getProperty("db.url");
-        String user = props.getProperty("db.user");
-        String password = props.getProperty("db.password");
         String sql = "INSERT INTO students (name, age, email) VALUES (?, ?, ?)";
 
-        try (Connection conn = DriverManager.getConnection(url, user, password);
-             PreparedStatement ps = conn.prepareStatement(sql))
+        try (Connection conn = Database.getConnection();
+             // Asks the driver to return the SERIAL id the database assigns
+             PreparedStatement ps = conn.prepareStatement(sql, new String[] { "id" }))
         {
 
             ps.setString(1, "Alice");
@@ -37,6 +20,15 @@ public class Example1
 
             int rows = ps.executeUpdate();
             System.out.println("✅ Rows inserted: " + rows);
+
+            // Same round trip: no need to SELECT the row again by email
+            try (ResultSet keys = ps.getGeneratedKeys())
+            {
+                if (keys.next())
+                {
+                    System.out.println("🆔 New student id: " + keys.getInt(1));
+                }
+            }
         }
         catch (SQLException e)
         {
@@ -0,0 +1,48 @@
+/**
+ * Example10.java
+ * Cached student lookups with StudentRepository.
+ * The first lookup of a student reads the database, repeated lookups are answered from memory.
+ * updateEmail() and deleteById() run the same SQL as Example3 and Example4
+ * and then drop the cache entries they made stale.
+ * insert() gets the new id back in the same round trip and caches the row,
+ * so looking the new student up needs no query at all.
+ */
+
+package crud.examples;
+
+import db.Database;
+import db.students.Student;
+import db.students.StudentRepository;
+import java.sql.*;
+
+public class Example10
+{
+    public static void main(String[] args)
+    {
+        try
+        {
+            StudentRepository students = new StudentRepository(Database.getDataSource());
+
+            for (int i = 0; i < 5; i++)
+            {
+                System.out.println("🔍 " + students.findById(1).map(Object::toString).orElse("Student not found."));
+            }
+
+            int rows = students.updateEmail(1, "updated_email@example.com");
+            System.out.println("✅ Rows updated: " + rows);
+            // Cache entry was invalidated, so this reads the new email from the database
+            System.out.println("🔍 " + students.findById(1).map(Object::toString).orElse("Student not found."));
+
+            Student added = students.insert(Student.of("Grace", 23, "grace." + System.nanoTime() + "@example.com"));
+            System.out.println("🆔 Inserted " + added);
+            System.out.println("🔍 " + students.findById(added.id()).map(Object::toString).orElse("Student not found."));
+
+            System.out.println("📊 By id:    " + students.idCacheStats());
+            System.out.println("📊 By email: " + students.emailCacheStats());
+        }
+        catch (SQLException e)
+        {
+            System.out.println("❌ Lookup failed: " + e.getMessage());
+        }
+    }
+}
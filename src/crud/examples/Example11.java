@@ -0,0 +1,53 @@
+/**
+ * Example11.java
+ * Parallel queries with AsyncStudentDao.
+ * Loading a student, their enrollments and their courses one after another
+ * takes the sum of three round trips. loadProfile() starts all three at once,
+ * so the total is about the slowest single query.
+ * Needs the courses and enrollments tables from databases/examples/example6.sql
+ * (with a student_id column on enrollments, as used in example7.sql).
+ */
+
+package crud.examples;
+
+import db.Database;
+import db.RequestExecutor;
+import db.students.AsyncStudentDao;
+import java.sql.*;
+import java.util.concurrent.*;
+
+public class Example11
+{
+    public static void main(String[] args)
+    {
+        int studentId = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+
+        try (RequestExecutor executor = new RequestExecutor())
+        {
+            AsyncStudentDao dao = new AsyncStudentDao(Database.getDataSource(), executor);
+
+            long start = System.nanoTime();
+            dao.findById(studentId).get();
+            dao.findEnrollments(studentId).get();
+            dao.findCourses(studentId).get();
+            System.out.printf("🐢 One after another: %.2f ms%n", (System.nanoTime() - start) / 1e6);
+
+            start = System.nanoTime();
+            dao.loadProfile(studentId).get().ifPresentOrElse(
+                    profile -> {
+                        System.out.println("🎓 " + profile.student());
+                        profile.courses().forEach(course -> System.out.println("   📚 " + course));
+                    },
+                    () -> System.out.println("❌ Student not found."));
+            System.out.printf("🚀 In parallel:       %.2f ms%n", (System.nanoTime() - start) / 1e6);
+        }
+        catch (SQLException e)
+        {
+            System.out.println("❌ Database error: " + e.getMessage());
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            System.out.println("❌ Query failed: " + e.getCause());
+        }
+    }
+}
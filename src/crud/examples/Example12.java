@@ -0,0 +1,44 @@
+/**
+ * Example12.java
+ * Listing students page by page with keyset pagination.
+ * Instead of SELECT * FROM students (Example2) or ORDER BY age DESC over the
+ * whole table, each page asks for the next pageSize rows after the last one
+ * shown. The token in between is all the caller has to keep.
+ */
+
+package crud.examples;
+
+import db.Database;
+import db.students.StudentPager;
+import java.sql.*;
+
+public class Example12
+{
+    public static void main(String[] args)
+    {
+        int pageSize = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+
+        try
+        {
+            StudentPager pager = new StudentPager(Database.getDataSource());
+            StudentPager.Page page = pager.first(StudentPager.Sort.AGE_DESC, pageSize);
+            int number = 1;
+            while (true)
+            {
+                System.out.println("📄 Page " + number + ":");
+                page.students().forEach(student -> System.out.println("   " + student));
+                if (!page.hasNext())
+                {
+                    break;
+                }
+                System.out.println("   ➡️ next token: " + page.nextToken());
+                page = pager.next(page.nextToken(), pageSize);
+                number++;
+            }
+        }
+        catch (SQLException e)
+        {
+            System.out.println("❌ Read failed: " + e.getMessage());
+        }
+    }
+}
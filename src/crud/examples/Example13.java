@@ -0,0 +1,39 @@
+/**
+ * Example13.java
+ * Re-runnable bulk import with StudentUpserter.
+ * Running Example1 twice fails on the UNIQUE email. An upsert inserts new
+ * emails, updates changed students and leaves unchanged ones alone, so the
+ * same import can be run again and again: run this example twice and the
+ * second run reports only skipped rows.
+ */
+
+package crud.examples;
+
+import db.Database;
+import db.students.Student;
+import db.students.StudentUpserter;
+import java.sql.*;
+import java.util.*;
+
+public class Example13
+{
+    public static void main(String[] args)
+    {
+        List<Student> sync = List.of(
+                Student.of("Alice", 22, "alice@example.com"),
+                Student.of("Bob", 25, "bob@example.com"),
+                Student.of("Charlie", 21, "charlie@example.com"),
+                Student.of("Daniel", 24, "daniel@example.com"));
+
+        try
+        {
+            StudentUpserter upserter = new StudentUpserter(Database.getDataSource(), StudentUpserter.Mode.UPDATE);
+            System.out.println("🔁 Batched:  " + upserter.upsert(sync));
+            System.out.println("🔁 Via COPY: " + upserter.upsertViaCopy(sync.stream()));
+        }
+        catch (SQLException e)
+        {
+            System.out.println("❌ Upsert failed: " + e.getMessage());
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package crud.examples;
 
-import java.io.*;
+import db.Database;
+import db.RowMapper;
+import db.students.Student;
 import java.sql.*;
 import java.util.*;
 
@@ -8,38 +10,19 @@ public class Example5
 {
     public static void main(String[] args)
     {
-        Properties props = new Properties();
-        String filePath = "resources" + File.separator + "config.properties";
-        try (FileInputStream fis = new FileInputStream(filePath))
-        {
-            // Load the properties file
-            props.load(fis);
-        }
-        catch (IOException e)
-        {
-            System.out.println("Could not read config file: " + e.getMessage());
-            return;
-        }
-
-        // Get values from properties file
-        String url = props.getProperty("db.url");
-        String user = props.getProperty("db.user");
-        String password = props.getProperty("db.password");
-        String sql = "SELECT * FROM students";
+        // Names exactly the columns Student needs: SELECT id, name, age, email FROM students
+        String sql = Student.MAPPER.selectFrom("students");
         List<Student> students = new ArrayList<>();
 
-        try (Connection conn = DriverManager.getConnection(url, user, password);
+        try (Connection conn = Database.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql))
         {
+            // Column positions are looked up once here, not by label on every row
+            RowMapper.Bound<Student> row = Student.MAPPER.bind(rs);
             while (rs.next())
             {
-                students.add(new Student(
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        rs.getInt("age"),
-                        rs.getString("email")
-                ));
+                students.add(row.map());
             }
 
             System.out.println("🎓 Students:");
@@ -51,26 +34,3 @@ public class Example5
         }
     }
 }
-
-
-class Student
-{
-    private int id;
-    private String name;
-    private int age;
-    private String email;
-
-    public Student(int id, String name, int age, String email)
-    {
-        this.id = id;
-        this.name = name;
-        this.age = age;
-        this.email = email;
-    }
-
-    @Override
-    public String toString()
-    {
-        return id + " | " + name + " | " + age + " | " + email;
-    }
-}
\ No newline at end of file
@@ -0,0 +1,46 @@
+/**
+ * Example6.java
+ * Inserting many students at once with StudentWriter.
+ * Rows are sent in batches (addBatch / executeBatch) of multi-row INSERTs
+ * and committed once per batch, instead of one round trip per student.
+ * Run with: Example6 <rows> <batchSize> [<batchSize> ...]
+ * to compare throughput (rows/s) for different batch sizes.
+ */
+
+package crud.examples;
+
+import db.Database;
+import db.students.Student;
+import db.students.StudentWriter;
+import db.students.WriteReport;
+import java.sql.*;
+import java.util.stream.*;
+
+public class Example6
+{
+    public static void main(String[] args)
+    {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int[] batchSizes = args.length > 1
+                ? Stream.of(args).skip(1).mapToInt(Integer::parseInt).toArray()
+                : new int[] { 1, 50, 500, 5000 };
+        long runId = System.currentTimeMillis();
+
+        try
+        {
+            for (int batchSize : batchSizes)
+            {
+                // Unique emails per run, generated lazily so the whole list never sits in memory
+                Stream<Student> students = IntStream.range(0, rows).mapToObj(i -> Student.of(
+                        "Student " + i, 18 + i % 10, "s" + runId + "-" + batchSize + "-" + i + "@example.com"));
+
+                WriteReport report = new StudentWriter(Database.getDataSource(), batchSize).write(students);
+                System.out.println("✅ batchSize=" + batchSize + ": " + report);
+            }
+        }
+        catch (SQLException e)
+        {
+            System.out.println("❌ Batch insert failed: " + e.getMessage());
+        }
+    }
+}
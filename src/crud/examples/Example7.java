@@ -0,0 +1,56 @@
+/**
+ * Example7.java
+ * Bulk loading with COPY compared to batched INSERTs.
+ * StudentCopyLoader streams rows into COPY students (name, age, email) FROM STDIN,
+ * StudentWriter sends multi-row INSERTs in batches.
+ * Both get the same number of generated students; the rows/s of each are printed.
+ * Run with: Example7 <rows> [<file.csv>]
+ * If a CSV file (name,age,email with a header line) is given, it is loaded with COPY as well.
+ */
+
+package crud.examples;
+
+import db.Database;
+import db.students.Student;
+import db.students.StudentCopyLoader;
+import db.students.StudentWriter;
+import db.students.WriteReport;
+import java.io.*;
+import java.sql.*;
+import java.util.stream.*;
+
+public class Example7
+{
+    public static void main(String[] args)
+    {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long runId = System.currentTimeMillis();
+
+        try
+        {
+            WriteReport batched = new StudentWriter(Database.getDataSource()).write(students(rows, "batch-" + runId));
+            System.out.println("📦 Batched INSERT: " + batched);
+
+            WriteReport copied = new StudentCopyLoader(Database.getDataSource()).load(students(rows, "copy-" + runId));
+            System.out.println("🚀 COPY:           " + copied);
+
+            System.out.printf("COPY is %.1fx faster%n", copied.rowsPerSecond() / batched.rowsPerSecond());
+
+            if (args.length > 1)
+            {
+                WriteReport fromFile = new StudentCopyLoader(Database.getDataSource()).load(new File(args[1]), true);
+                System.out.println("📄 COPY from " + args[1] + ": " + fromFile);
+            }
+        }
+        catch (SQLException | IOException e)
+        {
+            System.out.println("❌ Bulk load failed: " + e.getMessage());
+        }
+    }
+
+    private static Stream<Student> students(int rows, String tag)
+    {
+        return IntStream.range(0, rows).mapToObj(i -> Student.of(
+                "Student " + i, 18 + i % 10, tag + "-" + i + "@example.com"));
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Example8.java
+ * Reading a large students table without loading it into memory.
+ * StudentReader turns off autocommit and sets a fetch size, so the driver
+ * reads through a server-side cursor, db.fetchSize rows per round trip,
+ * instead of buffering the whole result set like Example5 does.
+ * The Stream is closed by try-with-resources, which also works when we stop early.
+ */
+
+package crud.examples;
+
+import db.Database;
+import db.students.Student;
+import db.students.StudentReader;
+import java.sql.*;
+import java.util.stream.*;
+
+public class Example8
+{
+    public static void main(String[] args)
+    {
+        try
+        {
+            StudentReader reader = new StudentReader(Database.getDataSource());
+
+            // Whole table, one fetch-size chunk in memory at a time
+            try (Stream<Student> students = reader.stream())
+            {
+                double averageAge = students.filter(s -> s.age() != null).mapToInt(Student::age).average().orElse(0);
+                System.out.printf("📊 Average age: %.1f%n", averageAge);
+            }
+
+            // Stopping early closes the cursor as well
+            System.out.println("🎓 First 10 students:");
+            try (Stream<Student> students = reader.stream())
+            {
+                students.limit(10).forEach(System.out::println);
+            }
+        }
+        catch (SQLException e)
+        {
+            System.out.println("❌ Read failed: " + e.getMessage());
+        }
+    }
+}
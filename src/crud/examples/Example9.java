@@ -0,0 +1,42 @@
+/**
+ * Example9.java
+ * Analytics over an in-memory, column-oriented copy of the students table.
+ * StudentTable keeps ids and ages in int[] and names/emails as UTF-8 bytes in one byte[],
+ * so millions of rows take a fraction of the memory of a List<Student>.
+ * The filter and sort below mirror databases/examples/example3.sql:
+ * SELECT * FROM students WHERE age > 21;
+ * SELECT * FROM students ORDER BY age DESC;
+ */
+
+package crud.examples;
+
+import db.Database;
+import db.students.StudentReader;
+import db.students.StudentTable;
+import java.sql.*;
+
+public class Example9
+{
+    public static void main(String[] args)
+    {
+        try
+        {
+            StudentTable table = new StudentReader(Database.getDataSource()).readTable();
+            System.out.printf("📦 Loaded %d students into %,d bytes%n", table.size(), table.memoryBytes());
+
+            int[] olderThan21 = table.filterAgeGreaterThan(21);
+            System.out.println("🎓 Students older than 21: " + olderThan21.length);
+
+            int[] byAgeDesc = table.sortByAge(true);
+            System.out.println("🏆 Oldest students:");
+            for (int i = 0; i < Math.min(5, byAgeDesc.length); i++)
+            {
+                System.out.println(table.get(byAgeDesc[i]));
+            }
+        }
+        catch (SQLException e)
+        {
+            System.out.println("❌ Failed to load students: " + e.getMessage());
+        }
+    }
+}
@@ -7,32 +7,20 @@
 
 package crud.exercises;
 
-import java.io.*;
+import db.Config;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.*;
 
 public class Exercise1
 {
     public static void main(String[] args)
     {
-        Properties  props = new Properties();
-
-        String filePath = "resources" + File.separator + "config.properties";
-        try( FileInputStream fin = new FileInputStream(filePath) )
-        {
-            props.load(fin);
-        }
-        catch (IOException e)
-        {
-            System.out.println("Error reading properties : " + e.getMessage());
-        }
-
-        String url = props.getProperty("db.url");
-        String user = props.getProperty("db.user");
-        String password = props.getProperty("db.password");
+        Config config = Config.get();
+        String url = config.url();
+        String user = config.user();
+        String password = config.password();
 
         try(Connection conn = DriverManager.getConnection(url, user, password))
         {
@@ -7,29 +7,17 @@
 
 package crud.exercises;
 
-import java.io.*;
-import java.util.*;
+import db.Config;
 import java.sql.*;
 
 public class Exercise2
 {
     public static void main(String[] args)
     {
-        Properties props = new Properties();
-
-        String filePath = "resources" + File.separator + "config.properties";
-        try( FileInputStream fin = new FileInputStream(filePath) )
-        {
-            props.load(fin);
-        }
-        catch (IOException e)
-        {
-            System.out.println("Error reading properties : " + e.getMessage());
-        }
-
-        String url = props.getProperty("db.url");
-        String user = props.getProperty("db.user");
-        String password = props.getProperty("db.password");
+        Config config = Config.get();
+        String url = config.url();
+        String user = config.user();
+        String password = config.password();
 
         try(Connection conn = DriverManager.getConnection(url, user, password))
         {
@@ -0,0 +1,237 @@
+/**
+ * BoundedCache.java
+ * A concurrent, size-bounded LRU cache with a time-to-live, for read-through lookups.
+ *
+ * Keys are spread over independent segments, each an access-ordered
+ * LinkedHashMap behind its own lock, so readers of different keys rarely
+ * wait for each other. Each segment evicts its least recently used entry
+ * when it is full; entries older than the TTL are dropped when read.
+ *
+ * get(key, loader) loads missing keys from the database. If the key is
+ * invalidated while the load is running, the loaded value is returned but
+ * not cached, so an update that commits during a read cannot leave a stale
+ * row behind. put() gives the same guarantee to values read elsewhere: it
+ * takes the invalidations() count from before the read and skips the put
+ * if anything was invalidated since.
+ */
+
+package db;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class BoundedCache<K, V>
+{
+    /** Loads a value for a key; returns null when there is none (nothing is cached then). */
+    @FunctionalInterface
+    public interface Loader<K, V>
+    {
+        V load(K key) throws SQLException;
+    }
+
+    private final Segment<K, V>[] segments;
+    private final long ttlNanos;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * @param maxSize total entries across all segments
+     * @param ttlMillis how long an entry stays valid; 0 means forever
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public BoundedCache(int maxSize, long ttlMillis)
+    {
+        if (maxSize < 1)
+        {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        // Both are powers of two, so segmentFor() can mask the hash and reach every segment
+        int segmentCount = Math.min(Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2)),
+                Integer.highestOneBit(maxSize));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++)
+        {
+            // Spread the remainder too, so the segments add up to exactly maxSize
+            segments[i] = new Segment<>(maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0), evictions);
+        }
+        this.ttlNanos = ttlMillis <= 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    /** Returns the cached value, or null if it is missing or expired. */
+    public V getIfPresent(K key)
+    {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment)
+        {
+            Entry<V> entry = segment.map.get(key);
+            if (entry == null)
+            {
+                misses.increment();
+                return null;
+            }
+            if (System.nanoTime() - entry.loadedAt > ttlNanos)
+            {
+                segment.map.remove(key);
+                expirations.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        }
+    }
+
+    /** Read-through: returns the cached value, or loads, caches and returns it. */
+    public V get(K key, Loader<K, V> loader) throws SQLException
+    {
+        V cached = getIfPresent(key);
+        if (cached != null)
+        {
+            return cached;
+        }
+
+        Segment<K, V> segment = segmentFor(key);
+        long generation;
+        synchronized (segment)
+        {
+            generation = segment.generation;
+        }
+
+        V loaded = loader.load(key);
+        if (loaded != null)
+        {
+            synchronized (segment)
+            {
+                // Skip caching if anything in this segment was invalidated while we were loading
+                if (segment.generation == generation)
+                {
+                    segment.map.put(key, new Entry<>(loaded, System.nanoTime()));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /** Invalidations so far; read it before reading a value from the database, then pass it to put(). */
+    public long invalidations()
+    {
+        return invalidations.get();
+    }
+
+    /**
+     * Caches value unless any key was invalidated after invalidationsBefore
+     * was read, in which case the value may already be stale.
+     */
+    public void put(K key, V value, long invalidationsBefore)
+    {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment)
+        {
+            // invalidate() counts before it removes, so a later removal cannot be missed
+            if (invalidations.get() == invalidationsBefore)
+            {
+                segment.map.put(key, new Entry<>(value, System.nanoTime()));
+            }
+        }
+    }
+
+    public void invalidate(K key)
+    {
+        invalidations.incrementAndGet();
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment)
+        {
+            segment.generation++;
+            segment.map.remove(key);
+        }
+    }
+
+    public void invalidateAll()
+    {
+        invalidations.incrementAndGet();
+        for (Segment<K, V> segment : segments)
+        {
+            synchronized (segment)
+            {
+                segment.generation++;
+                segment.map.clear();
+            }
+        }
+    }
+
+    public int size()
+    {
+        int size = 0;
+        for (Segment<K, V> segment : segments)
+        {
+            synchronized (segment)
+            {
+                size += segment.map.size();
+            }
+        }
+        return size;
+    }
+
+    public CacheStats stats()
+    {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), size());
+    }
+
+    private Segment<K, V> segmentFor(K key)
+    {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (segments.length - 1)];
+    }
+
+    private record Entry<V>(V value, long loadedAt)
+    {
+    }
+
+    private static final class Segment<K, V>
+    {
+        final LinkedHashMap<K, Entry<V>> map;
+        long generation;
+
+        Segment(int capacity, LongAdder evictions)
+        {
+            this.map = new LinkedHashMap<>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest)
+                {
+                    if (size() > capacity)
+                    {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    /** Cache counters; hitRatio() is the number to watch. */
+    public record CacheStats(long hits, long misses, long evictions, long expirations, int size)
+    {
+        public double hitRatio()
+        {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : hits / (double) lookups;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("hits=%d misses=%d hitRatio=%.1f%% evictions=%d expirations=%d size=%d",
+                    hits, misses, hitRatio() * 100, evictions, expirations, size);
+        }
+    }
+}
@@ -0,0 +1,418 @@
+/**
+ * Config.java
+ * Process-wide, immutable snapshot of resources/config.properties.
+ *
+ * The file is read once, the first time Config.get() is called; after that
+ * every caller gets the same in-memory snapshot, so hot paths never touch disk.
+ * watch() starts a background thread that reloads the file when it changes
+ * and swaps the snapshot atomically; readers holding the old snapshot keep
+ * a consistent view until they call get() again. Database starts it along
+ * with the pool and registers the pool as a listener.
+ *
+ * A missing file, a missing db.url or a typed value that does not parse or
+ * is out of range fails fast with IllegalStateException instead of
+ * continuing with a null url or failing later in whichever getter reads it.
+ * A reload is checked the same way and handed to the listeners before it
+ * becomes current, so a broken file never replaces a good snapshot.
+ * Set -Dconfig.file=... to read a different file.
+ */
+
+package db;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+public final class Config
+{
+    private static final Path FILE = Paths.get(System.getProperty("config.file",
+            "resources" + File.separator + "config.properties"));
+
+    private static final AtomicReference<Config> CURRENT = new AtomicReference<>();
+    private static final List<Consumer<Config>> LISTENERS = new CopyOnWriteArrayList<>();
+    private static Thread watcher;
+
+    private final Properties props;
+
+    private Config(Properties props)
+    {
+        this.props = props;
+    }
+
+    /** Returns the current snapshot, loading it on first use. */
+    public static Config get()
+    {
+        Config c = CURRENT.get();
+        if (c == null)
+        {
+            synchronized (Config.class)
+            {
+                c = CURRENT.get();
+                if (c == null)
+                {
+                    c = load();
+                    CURRENT.set(c);
+                }
+            }
+        }
+        return c;
+    }
+
+    /** Builds a snapshot from explicit properties, for tools and benchmarks that do not use the file. */
+    public static Config of(Properties props)
+    {
+        Properties copy = new Properties();
+        copy.putAll(props);
+        return new Config(copy);
+    }
+
+    /**
+     * Called with each reloaded snapshot before it becomes current; a listener
+     * that throws rejects the reload and the previous snapshot stays.
+     */
+    public static void addListener(Consumer<Config> listener)
+    {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * Starts watching the config file for changes (once per process).
+     * A reload that fails keeps the previous snapshot.
+     */
+    public static synchronized void watch()
+    {
+        if (watcher != null)
+        {
+            return;
+        }
+        get();
+        watcher = new Thread(Config::watchLoop, "config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Re-reads the file now and swaps the snapshot. Throws IllegalStateException
+     * (or whatever a listener threw) and keeps the previous snapshot if the file
+     * is invalid or a listener rejects it.
+     */
+    public static Config reload()
+    {
+        Config fresh = load();
+        for (Consumer<Config> listener : LISTENERS)
+        {
+            listener.accept(fresh);
+        }
+        CURRENT.set(fresh);
+        return fresh;
+    }
+
+    // Typed getters
+
+    public String url()
+    {
+        return props.getProperty("db.url");
+    }
+
+    public String user()
+    {
+        return props.getProperty("db.user");
+    }
+
+    public String password()
+    {
+        return props.getProperty("db.password");
+    }
+
+    public int poolMaxSize()
+    {
+        return getInt("db.pool.maxSize", 10);
+    }
+
+    public int poolMinIdle()
+    {
+        return getInt("db.pool.minIdle", 2);
+    }
+
+    public long poolIdleTimeoutMs()
+    {
+        return getLong("db.pool.idleTimeoutMs", 600_000);
+    }
+
+    public long poolBorrowTimeoutMs()
+    {
+        return getLong("db.pool.borrowTimeoutMs", 30_000);
+    }
+
+    public long poolLeakThresholdMs()
+    {
+        return getLong("db.pool.leakThresholdMs", 0);
+    }
+
+    public int poolValidationTimeoutSeconds()
+    {
+        return getInt("db.pool.validationTimeoutSeconds", 5);
+    }
+
+    public int poolStatementCacheSize()
+    {
+        return getInt("db.pool.statementCacheSize", 0);
+    }
+
+    /** Rows fetched per round trip by cursor-based reads. */
+    public int fetchSize()
+    {
+        return getInt("db.fetchSize", 1000);
+    }
+
+    /** Rows sent per executeBatch() by batched writers. */
+    public int batchSize()
+    {
+        return getInt("db.batchSize", 500);
+    }
+
+    /** Statement.setQueryTimeout() value; 0 means no timeout. */
+    public int queryTimeoutSeconds()
+    {
+        return getInt("db.queryTimeoutSeconds", 0);
+    }
+
+    /** Whether Database hands out connections instrumented by SqlMetrics. */
+    public boolean metricsEnabled()
+    {
+        return getBoolean("db.metrics.enabled", false);
+    }
+
+    /** Statements slower than this are logged by SlowQueryLog; 0 turns the log off. */
+    public long slowQueryThresholdMs()
+    {
+        return getLong("db.slowQuery.thresholdMs", 0);
+    }
+
+    /** Fraction of slow statements whose EXPLAIN (ANALYZE, BUFFERS) plan is captured. */
+    public double slowQueryExplainSampleRate()
+    {
+        return Double.parseDouble(getString("db.slowQuery.explainSampleRate", "0").trim());
+    }
+
+    /** none, strings or all: which bound parameters the slow-query log hides. */
+    public String slowQueryRedaction()
+    {
+        return getString("db.slowQuery.redaction", "strings").trim();
+    }
+
+    /** day or month: the range each partition of the logs table covers (db.logs.LogPartitions). */
+    public String logsPartitionInterval()
+    {
+        return getString("db.logs.partitionInterval", "day").trim();
+    }
+
+    /** Partitions created ahead of the current one, so new rows never wait for one. */
+    public int logsPartitionsAhead()
+    {
+        return getInt("db.logs.partitionsAhead", 7);
+    }
+
+    /** Partitions ending this many days ago or earlier are dropped; 0 keeps everything. */
+    public int logsRetentionDays()
+    {
+        return getInt("db.logs.retentionDays", 0);
+    }
+
+    /** Attempts per transaction before TransactionTemplate gives up on a serialization failure or deadlock. */
+    public int txMaxAttempts()
+    {
+        return getInt("db.tx.maxAttempts", 5);
+    }
+
+    /** First retry backoff of TransactionTemplate; it doubles up to txMaxBackoffMs(). */
+    public long txBaseBackoffMs()
+    {
+        return getLong("db.tx.baseBackoffMs", 10);
+    }
+
+    public long txMaxBackoffMs()
+    {
+        return getLong("db.tx.maxBackoffMs", 1000);
+    }
+
+    /** Entries per StudentRepository cache (by id and by email). */
+    public int cacheMaxSize()
+    {
+        return getInt("db.cache.maxSize", 10_000);
+    }
+
+    /** Seconds a cached student is served before it is read again; 0 means no expiry. */
+    public long cacheTtlSeconds()
+    {
+        return getLong("db.cache.ttlSeconds", 300);
+    }
+
+    public String getString(String key, String defaultValue)
+    {
+        return props.getProperty(key, defaultValue);
+    }
+
+    public int getInt(String key, int defaultValue)
+    {
+        String value = props.getProperty(key);
+        if (value == null || value.isBlank())
+        {
+            return defaultValue;
+        }
+        try
+        {
+            return Integer.parseInt(value.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalStateException(key + " is not a number: " + value, e);
+        }
+    }
+
+    public long getLong(String key, long defaultValue)
+    {
+        String value = props.getProperty(key);
+        if (value == null || value.isBlank())
+        {
+            return defaultValue;
+        }
+        try
+        {
+            return Long.parseLong(value.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalStateException(key + " is not a number: " + value, e);
+        }
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue)
+    {
+        String value = props.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    private static Config load()
+    {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(FILE))
+        {
+            props.load(in);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Could not read config file " + FILE + ": " + e.getMessage(), e);
+        }
+        if (props.getProperty("db.url", "").isBlank())
+        {
+            throw new IllegalStateException("db.url is not set in " + FILE);
+        }
+        Config config = new Config(props);
+        config.validate();
+        return config;
+    }
+
+    // Reads every typed value once, so a bad one fails here and not in whichever class reads it later
+    private void validate()
+    {
+        atLeast("db.pool.maxSize", poolMaxSize(), 1);
+        atLeast("db.pool.minIdle", poolMinIdle(), 0);
+        atLeast("db.pool.idleTimeoutMs", poolIdleTimeoutMs(), 0);
+        atLeast("db.pool.borrowTimeoutMs", poolBorrowTimeoutMs(), 0);
+        atLeast("db.pool.leakThresholdMs", poolLeakThresholdMs(), 0);
+        atLeast("db.pool.validationTimeoutSeconds", poolValidationTimeoutSeconds(), 0);
+        atLeast("db.pool.statementCacheSize", poolStatementCacheSize(), 0);
+        atLeast("db.fetchSize", fetchSize(), 1);
+        atLeast("db.batchSize", batchSize(), 1);
+        atLeast("db.queryTimeoutSeconds", queryTimeoutSeconds(), 0);
+        atLeast("db.slowQuery.thresholdMs", slowQueryThresholdMs(), 0);
+        double sampleRate;
+        try
+        {
+            sampleRate = slowQueryExplainSampleRate();
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalStateException("db.slowQuery.explainSampleRate is not a number", e);
+        }
+        if (!(sampleRate >= 0 && sampleRate <= 1))
+        {
+            throw new IllegalStateException("db.slowQuery.explainSampleRate must be between 0 and 1: " + sampleRate);
+        }
+        oneOf("db.slowQuery.redaction", slowQueryRedaction(), "none", "strings", "all");
+        oneOf("db.logs.partitionInterval", logsPartitionInterval(), "day", "month");
+        atLeast("db.logs.partitionsAhead", logsPartitionsAhead(), 0);
+        atLeast("db.logs.retentionDays", logsRetentionDays(), 0);
+        atLeast("db.tx.maxAttempts", txMaxAttempts(), 1);
+        atLeast("db.tx.baseBackoffMs", txBaseBackoffMs(), 0);
+        atLeast("db.tx.maxBackoffMs", txMaxBackoffMs(), txBaseBackoffMs());
+        atLeast("db.cache.maxSize", cacheMaxSize(), 1);
+        atLeast("db.cache.ttlSeconds", cacheTtlSeconds(), 0);
+    }
+
+    private static void atLeast(String key, long value, long min)
+    {
+        if (value < min)
+        {
+            throw new IllegalStateException(key + " must be at least " + min + ": " + value);
+        }
+    }
+
+    private static void oneOf(String key, String value, String... allowed)
+    {
+        for (String a : allowed)
+        {
+            if (a.equalsIgnoreCase(value))
+            {
+                return;
+            }
+        }
+        throw new IllegalStateException(key + " must be one of " + String.join(", ", allowed) + ": " + value);
+    }
+
+    private static void watchLoop()
+    {
+        Path dir = FILE.toAbsolutePath().getParent();
+        try (WatchService ws = dir.getFileSystem().newWatchService())
+        {
+            dir.register(ws, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+            while (!Thread.currentThread().isInterrupted())
+            {
+                WatchKey key = ws.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents())
+                {
+                    if (FILE.getFileName().equals(event.context()))
+                    {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed)
+                {
+                    try
+                    {
+                        reload();
+                        System.out.println("🔄 Reloaded " + FILE);
+                    }
+                    catch (RuntimeException e)
+                    {
+                        System.out.println("⚠️ Keeping previous configuration: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            System.out.println("⚠️ Config watcher stopped: " + e.getMessage());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
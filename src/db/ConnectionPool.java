@@ -0,0 +1,618 @@
+/**
+ * ConnectionPool.java
+ * A small, dependency-free pooled DataSource for the examples in this repo.
+ * Instead of paying a TCP + authentication + backend startup handshake for
+ * every statement (DriverManager.getConnection), physical connections are
+ * opened once and handed out again and again.
+ *
+ * Bounded size (a Semaphore caps how many connections can be borrowed)
+ * Idle eviction (connections unused for db.pool.idleTimeoutMs are closed, down to minIdle)
+ * Validation on borrow (Connection.isValid) for connections that sat idle
+ * Borrow timeout (SQLTransientConnectionException instead of waiting forever)
+ * Leak detection (prints where a connection was borrowed if it is held too long)
+ * Statement cache (an LRU of PreparedStatements per physical connection, see StatementCache)
+ * Metrics (active / idle / wait time, statement cache hits) through stats()
+ *
+ * reconfigure(Config) applies a reloaded Config to a running pool: size,
+ * minIdle, timeouts and the leak threshold change in place. The url,
+ * credentials and statement cache size only apply to new pools.
+ */
+
+package db;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+public class ConnectionPool implements DataSource, AutoCloseable
+{
+    // A connection returned less than this long ago is assumed to still be alive
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private volatile int maxSize;
+    private volatile int minIdle;
+    private volatile long idleTimeoutMs;
+    private volatile long borrowTimeoutMs;
+    private volatile long leakThresholdMs;
+    private volatile int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    private final Permits permits;
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private ScheduledFuture<?> housekeeping;
+    private volatile boolean closed;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+
+    private ConnectionPool(Builder b)
+    {
+        this.url = b.url;
+        this.user = b.user;
+        this.password = b.password;
+        this.maxSize = b.maxSize;
+        this.minIdle = Math.min(b.minIdle, b.maxSize);
+        this.idleTimeoutMs = b.idleTimeoutMs;
+        this.borrowTimeoutMs = b.borrowTimeoutMs;
+        this.leakThresholdMs = b.leakThresholdMs;
+        this.validationTimeoutSeconds = b.validationTimeoutSeconds;
+        this.statementCacheSize = b.statementCacheSize;
+        this.permits = new Permits(maxSize);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduleHousekeeping();
+    }
+
+    public static Builder builder(String url, String user, String password)
+    {
+        return new Builder(url, user, password);
+    }
+
+    /** Builds a pool from the db.* keys of a Config snapshot. */
+    public static ConnectionPool fromConfig(Config config)
+    {
+        return builder(config.url(), config.user(), config.password())
+                .maxSize(config.poolMaxSize())
+                .minIdle(config.poolMinIdle())
+                .idleTimeoutMs(config.poolIdleTimeoutMs())
+                .borrowTimeoutMs(config.poolBorrowTimeoutMs())
+                .leakThresholdMs(config.poolLeakThresholdMs())
+                .validationTimeoutSeconds(config.poolValidationTimeoutSeconds())
+                .statementCacheSize(config.poolStatementCacheSize())
+                .build();
+    }
+
+    /**
+     * Applies the pool settings of a new Config snapshot, e.g. as a
+     * Config.addListener callback. A smaller maxSize takes effect as borrowed
+     * connections come back; surplus idle connections are closed right away.
+     */
+    public synchronized void reconfigure(Config config)
+    {
+        int newMaxSize = config.poolMaxSize();
+        if (newMaxSize < 1)
+        {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        long oldIdleTimeoutMs = idleTimeoutMs;
+        long oldLeakThresholdMs = leakThresholdMs;
+
+        int delta = newMaxSize - maxSize;
+        if (delta > 0)
+        {
+            permits.release(delta);
+        }
+        else if (delta < 0)
+        {
+            permits.shrink(-delta);
+        }
+        maxSize = newMaxSize;
+        minIdle = Math.min(config.poolMinIdle(), newMaxSize);
+        idleTimeoutMs = config.poolIdleTimeoutMs();
+        borrowTimeoutMs = config.poolBorrowTimeoutMs();
+        leakThresholdMs = config.poolLeakThresholdMs();
+        validationTimeoutSeconds = config.poolValidationTimeoutSeconds();
+
+        PooledConnection pc;
+        while (idle.size() > newMaxSize && (pc = idle.pollLast()) != null)
+        {
+            destroy(pc);
+        }
+        if (!closed && (idleTimeoutMs != oldIdleTimeoutMs || leakThresholdMs != oldLeakThresholdMs))
+        {
+            housekeeping.cancel(false);
+            scheduleHousekeeping();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        if (closed)
+        {
+            throw new SQLNonTransientConnectionException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try
+        {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS))
+            {
+                timeouts.increment();
+                throw new SQLTransientConnectionException("Timed out after " + borrowTimeoutMs
+                        + " ms waiting for a connection (active=" + borrowed.size() + ", max=" + maxSize + ")");
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+        }
+
+        try
+        {
+            PooledConnection pc = takeIdle();
+            if (pc == null)
+            {
+                pc = open();
+            }
+
+            long waited = System.nanoTime() - start;
+            borrowCount.increment();
+            totalWaitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+            pc.borrowedAt = System.nanoTime();
+            pc.borrowSite = leakThresholdMs > 0 ? new Exception("Connection borrowed here") : null;
+            pc.leakReported = false;
+            borrowed.add(pc);
+            return pc.newHandle();
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException
+    {
+        throw new SQLFeatureNotSupportedException("The pool only hands out connections for its configured user");
+    }
+
+    /** Returns a point-in-time snapshot of the pool counters. */
+    public PoolStats stats()
+    {
+        long borrows = borrowCount.sum();
+        return new PoolStats(
+                borrowed.size(),
+                idle.size(),
+                maxSize,
+                permits.getQueueLength(),
+                borrows,
+                borrows == 0 ? 0 : totalWaitNanos.sum() / borrows,
+                maxWaitNanos.get(),
+                timeouts.sum(),
+                leaks.sum(),
+                created.sum(),
+                destroyed.sum(),
+                statementHits.sum(),
+                statementMisses.sum());
+    }
+
+    // synchronized with reconfigure(), which must not reschedule on a stopped housekeeper
+    @Override
+    public synchronized void close()
+    {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null)
+        {
+            destroy(pc);
+        }
+        // Borrowed connections are closed as their handles are returned
+    }
+
+    private void scheduleHousekeeping()
+    {
+        long period = Math.max(1000, Math.min(idleTimeoutMs, leakThresholdMs > 0 ? leakThresholdMs : idleTimeoutMs) / 2);
+        housekeeping = housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private PooledConnection takeIdle()
+    {
+        PooledConnection pc;
+        // LIFO: the most recently used connection is the one most likely to be alive and warm
+        while ((pc = idle.pollFirst()) != null)
+        {
+            if (System.nanoTime() - pc.returnedAt < VALIDATION_BYPASS_NANOS || isValid(pc))
+            {
+                return pc;
+            }
+            destroy(pc);
+        }
+        return null;
+    }
+
+    private boolean isValid(PooledConnection pc)
+    {
+        try
+        {
+            return pc.physical.isValid(validationTimeoutSeconds);
+        }
+        catch (SQLException e)
+        {
+            return false;
+        }
+    }
+
+    private PooledConnection open() throws SQLException
+    {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        created.increment();
+        return new PooledConnection(physical);
+    }
+
+    private void destroy(PooledConnection pc)
+    {
+        destroyed.increment();
+        if (pc.statements != null)
+        {
+            pc.statements.closeAll();
+        }
+        try
+        {
+            pc.physical.close();
+        }
+        catch (SQLException ignored)
+        {
+            // Nothing useful to do with a connection that cannot even be closed
+        }
+    }
+
+    private void release(PooledConnection pc)
+    {
+        borrowed.remove(pc);
+        try
+        {
+            boolean reusable = !closed && !pc.physical.isClosed() && reset(pc);
+            if (reusable)
+            {
+                pc.returnedAt = System.nanoTime();
+                idle.offerFirst(pc);
+            }
+            else
+            {
+                destroy(pc);
+            }
+        }
+        catch (SQLException e)
+        {
+            destroy(pc);
+        }
+        finally
+        {
+            permits.release();
+        }
+    }
+
+    // Undo whatever the borrower changed so the next borrower gets a clean session
+    private boolean reset(PooledConnection pc)
+    {
+        try
+        {
+            Connection c = pc.physical;
+            if (!c.getAutoCommit())
+            {
+                c.rollback();
+                c.setAutoCommit(true);
+            }
+            if (c.getTransactionIsolation() != pc.defaultIsolation)
+            {
+                c.setTransactionIsolation(pc.defaultIsolation);
+            }
+            if (c.isReadOnly())
+            {
+                c.setReadOnly(false);
+            }
+            c.clearWarnings();
+            return true;
+        }
+        catch (SQLException e)
+        {
+            return false;
+        }
+    }
+
+    private void housekeep()
+    {
+        long now = System.nanoTime();
+
+        // Idle eviction: drop connections from the cold end of the deque down to minIdle
+        long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        Iterator<PooledConnection> coldestFirst = idle.descendingIterator();
+        while (coldestFirst.hasNext() && idle.size() > minIdle)
+        {
+            PooledConnection pc = coldestFirst.next();
+            if (now - pc.returnedAt > idleTimeoutNanos && idle.removeLastOccurrence(pc))
+            {
+                destroy(pc);
+            }
+        }
+
+        // Leak detection: report each over-held connection once per borrow
+        if (leakThresholdMs > 0)
+        {
+            long leakNanos = TimeUnit.MILLISECONDS.toNanos(leakThresholdMs);
+            for (PooledConnection pc : borrowed)
+            {
+                if (!pc.leakReported && now - pc.borrowedAt > leakNanos)
+                {
+                    pc.leakReported = true;
+                    leaks.increment();
+                    System.out.println("⚠️ Possible connection leak: held for more than " + leakThresholdMs + " ms");
+                    if (pc.borrowSite != null)
+                    {
+                        pc.borrowSite.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+
+    // DataSource boilerplate
+
+    @Override
+    public PrintWriter getLogWriter()
+    {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out)
+    {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds)
+    {
+    }
+
+    @Override
+    public int getLoginTimeout()
+    {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException
+    {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException
+    {
+        if (iface.isInstance(this))
+        {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface)
+    {
+        return iface.isInstance(this);
+    }
+
+    /** A fair Semaphore that can also give up permits, so maxSize can shrink. */
+    private static final class Permits extends Semaphore
+    {
+        private static final long serialVersionUID = 1L;
+
+        Permits(int permits)
+        {
+            super(permits, true);
+        }
+
+        // May go below zero: returned connections then pay the difference back
+        void shrink(int reduction)
+        {
+            reducePermits(reduction);
+        }
+    }
+
+    /** One physical connection plus the bookkeeping the pool needs for it. */
+    private final class PooledConnection
+    {
+        final Connection physical;
+        final int defaultIsolation;
+        final StatementCache statements;
+        volatile long returnedAt = System.nanoTime();
+        volatile long borrowedAt;
+        volatile Exception borrowSite;
+        volatile boolean leakReported;
+
+        PooledConnection(Connection physical) throws SQLException
+        {
+            this.physical = physical;
+            this.defaultIsolation = physical.getTransactionIsolation();
+            this.statements = statementCacheSize > 0
+                    ? new StatementCache(statementCacheSize, statementHits, statementMisses)
+                    : null;
+        }
+
+        // Each borrow gets its own handle, so a stale handle cannot touch the next borrower's session
+        Connection newHandle()
+        {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    new Handle(this));
+        }
+    }
+
+    /** The Connection the caller sees: close() gives the physical connection back to the pool. */
+    private final class Handle implements InvocationHandler
+    {
+        // A CAS instead of synchronized: close() may do I/O (rollback) and must not pin a virtual thread
+        private final AtomicReference<PooledConnection> pc;
+
+        Handle(PooledConnection pc)
+        {
+            this.pc = new AtomicReference<>(pc);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            switch (method.getName())
+            {
+                case "close":
+                    PooledConnection returning = pc.getAndSet(null);
+                    if (returning != null)
+                    {
+                        release(returning);
+                    }
+                    return null;
+                case "isClosed":
+                    return pc.get() == null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    PooledConnection shown = pc.get();
+                    return "PooledConnection[" + (shown == null ? "closed" : shown.physical) + "]";
+                default:
+                    break;
+            }
+
+            PooledConnection current = pc.get();
+            if (current == null)
+            {
+                throw new SQLNonTransientConnectionException("Connection is closed");
+            }
+            if (current.statements != null && "prepareStatement".equals(method.getName()) && args.length == 1)
+            {
+                return current.statements.prepare(current.physical, (String) args[0], (Connection) proxy);
+            }
+            try
+            {
+                return method.invoke(current.physical, args);
+            }
+            catch (InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+        }
+    }
+
+    public static class Builder
+    {
+        private final String url;
+        private final String user;
+        private final String password;
+        private int maxSize = 10;
+        private int minIdle = 2;
+        private long idleTimeoutMs = 600_000;
+        private long borrowTimeoutMs = 30_000;
+        private long leakThresholdMs = 0;
+        private int validationTimeoutSeconds = 5;
+        private int statementCacheSize = 0;
+
+        private Builder(String url, String user, String password)
+        {
+            this.url = url;
+            this.user = user;
+            this.password = password;
+        }
+
+        public Builder maxSize(int maxSize)
+        {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Builder minIdle(int minIdle)
+        {
+            this.minIdle = minIdle;
+            return this;
+        }
+
+        public Builder idleTimeoutMs(long idleTimeoutMs)
+        {
+            this.idleTimeoutMs = idleTimeoutMs;
+            return this;
+        }
+
+        public Builder borrowTimeoutMs(long borrowTimeoutMs)
+        {
+            this.borrowTimeoutMs = borrowTimeoutMs;
+            return this;
+        }
+
+        /** 0 disables leak detection. */
+        public Builder leakThresholdMs(long leakThresholdMs)
+        {
+            this.leakThresholdMs = leakThresholdMs;
+            return this;
+        }
+
+        public Builder validationTimeoutSeconds(int validationTimeoutSeconds)
+        {
+            this.validationTimeoutSeconds = validationTimeoutSeconds;
+            return this;
+        }
+
+        /** PreparedStatements cached per connection; 0 disables the cache. */
+        public Builder statementCacheSize(int statementCacheSize)
+        {
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+
+        public ConnectionPool build()
+        {
+            if (url == null || url.isBlank())
+            {
+                throw new IllegalArgumentException("db.url is not set");
+            }
+            if (maxSize < 1)
+            {
+                throw new IllegalArgumentException("maxSize must be at least 1");
+            }
+            return new ConnectionPool(this);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Database.java
+ * Process-wide access point to the shared ConnectionPool.
+ * The pool is created the first time a connection is requested,
+ * from the shared Config snapshot, and closed on JVM shutdown.
+ * From then on Config.watch() reloads the file when it changes and the
+ * pool picks up its new size and timeouts (ConnectionPool.reconfigure).
+ *
+ * try (Connection conn = Database.getConnection()) { ... }
+ * closes the borrowed connection, which returns it to the pool.
+ *
+ * With db.metrics.enabled=true, connections are instrumented by SqlMetrics
+ * and the per-statement statistics are printed on JVM shutdown.
+ * With db.slowQuery.thresholdMs above 0, slow statements are logged by SlowQueryLog.
+ */
+
+package db;
+
+import java.sql.*;
+import javax.sql.DataSource;
+
+public final class Database
+{
+    private static final SqlMetrics metrics = new SqlMetrics();
+
+    private static volatile ConnectionPool pool;
+    private static volatile DataSource dataSource;
+
+    private Database()
+    {
+    }
+
+    public static Connection getConnection() throws SQLException
+    {
+        return getDataSource().getConnection();
+    }
+
+    /** The pool, wrapped by SlowQueryLog and SqlMetrics when they are enabled. */
+    public static DataSource getDataSource() throws SQLException
+    {
+        DataSource ds = dataSource;
+        if (ds == null)
+        {
+            getPool();
+            ds = dataSource;
+        }
+        return ds;
+    }
+
+    /** Statistics of instrumented connections; empty unless db.metrics.enabled is set. */
+    public static SqlMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    public static ConnectionPool getPool() throws SQLException
+    {
+        ConnectionPool p = pool;
+        if (p == null)
+        {
+            synchronized (Database.class)
+            {
+                p = pool;
+                if (p == null)
+                {
+                    Config config = loadConfig();
+                    p = ConnectionPool.fromConfig(config);
+                    Runtime.getRuntime().addShutdownHook(new Thread(p::close, "connection-pool-shutdown"));
+                    Config.addListener(p::reconfigure);
+                    Config.watch();
+                    DataSource ds = p;
+                    if (config.slowQueryThresholdMs() > 0)
+                    {
+                        ds = SlowQueryLog.fromConfig(config, explainPool(config)).instrument(ds);
+                    }
+                    if (config.metricsEnabled())
+                    {
+                        metrics.dumpOnShutdown();
+                        ds = metrics.instrument(ds);
+                    }
+                    dataSource = ds;
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * EXPLAINs get a one-connection pool of their own: they are neither logged
+     * nor counted, and never wait for (or take) a connection the application
+     * needs. null when no plans are sampled.
+     */
+    private static DataSource explainPool(Config config)
+    {
+        if (config.slowQueryExplainSampleRate() <= 0)
+        {
+            return null;
+        }
+        ConnectionPool explainPool = ConnectionPool.builder(config.url(), config.user(), config.password())
+                .maxSize(1)
+                .minIdle(0)
+                .borrowTimeoutMs(1000)
+                .build();
+        Runtime.getRuntime().addShutdownHook(new Thread(explainPool::close, "explain-pool-shutdown"));
+        return explainPool;
+    }
+
+    private static Config loadConfig() throws SQLException
+    {
+        try
+        {
+            return Config.get();
+        }
+        catch (IllegalStateException e)
+        {
+            throw new SQLNonTransientConnectionException(e.getMessage(), e);
+        }
+    }
+}
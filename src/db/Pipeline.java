@@ -0,0 +1,108 @@
+/**
+ * Pipeline.java
+ * Sends several parameterized statements to the database in one round trip.
+ *
+ * Executing statements one by one costs a network round trip each, plus one
+ * for COMMIT. A Pipeline joins the queued statements into a single
+ * multi-statement PreparedStatement; the PostgreSQL driver sends all of them
+ * (Parse/Bind/Execute for each) followed by one Sync, and reads all results
+ * back in one go:
+ *
+ * int[] counts = new Pipeline()
+ *         .add("UPDATE accounts SET balance = balance - ? WHERE name = ?", amount, "Alice")
+ *         .add("UPDATE accounts SET balance = balance + ? WHERE name = ?", amount, "Bob")
+ *         .execute(conn);
+ *
+ * With autocommit on, PostgreSQL runs everything up to the Sync as one
+ * implicit transaction: either all statements take effect or none does, and
+ * no BEGIN/COMMIT round trips are needed. With autocommit off the statements
+ * join the caller's transaction and the caller commits.
+ */
+
+package db;
+
+import java.sql.*;
+import java.util.*;
+
+public final class Pipeline
+{
+    private final StringBuilder sql = new StringBuilder();
+    private final List<Object> params = new ArrayList<>();
+    private int statements;
+
+    /** Queues one statement; params bind to its ? placeholders in order. */
+    public Pipeline add(String statement, Object... statementParams)
+    {
+        String trimmed = statement.strip();
+        while (trimmed.endsWith(";"))
+        {
+            trimmed = trimmed.substring(0, trimmed.length() - 1).strip();
+        }
+        if (trimmed.isEmpty())
+        {
+            throw new IllegalArgumentException("Empty statement");
+        }
+        if (statements > 0)
+        {
+            sql.append(";\n");
+        }
+        sql.append(trimmed);
+        params.addAll(Arrays.asList(statementParams));
+        statements++;
+        return this;
+    }
+
+    public int size()
+    {
+        return statements;
+    }
+
+    /**
+     * Sends all queued statements in one round trip.
+     * @return one update count per statement, in order; Statement.SUCCESS_NO_INFO for statements that return rows
+     */
+    public int[] execute(Connection conn) throws SQLException
+    {
+        int[] counts = new int[statements];
+        if (statements == 0)
+        {
+            return counts;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString()))
+        {
+            for (int i = 0; i < params.size(); i++)
+            {
+                ps.setObject(i + 1, params.get(i));
+            }
+            boolean isResultSet = ps.execute();
+            for (int i = 0; i < statements; i++)
+            {
+                if (isResultSet)
+                {
+                    ps.getResultSet().close();
+                    counts[i] = Statement.SUCCESS_NO_INFO;
+                }
+                else
+                {
+                    counts[i] = ps.getUpdateCount();
+                }
+                isResultSet = ps.getMoreResults();
+            }
+        }
+        return counts;
+    }
+
+    /** Empties the pipeline so it can be reused. */
+    public void clear()
+    {
+        sql.setLength(0);
+        params.clear();
+        statements = 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return sql.toString();
+    }
+}
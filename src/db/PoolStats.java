@@ -0,0 +1,54 @@
+/**
+ * PoolStats.java
+ * Snapshot of the ConnectionPool counters, used to size the pool under load.
+ * If waiting is often above 0 or avgWait keeps growing, the pool is too small.
+ * If idle stays close to maxSize, it is bigger than it needs to be.
+ * A low statement cache hit ratio means db.pool.statementCacheSize is too small
+ * for the number of distinct SQL strings the application prepares.
+ */
+
+package db;
+
+import java.util.concurrent.TimeUnit;
+
+public record PoolStats(
+        int active,
+        int idle,
+        int maxSize,
+        int waiting,
+        long borrows,
+        long avgWaitNanos,
+        long maxWaitNanos,
+        long timeouts,
+        long leaksDetected,
+        long created,
+        long destroyed,
+        long statementCacheHits,
+        long statementCacheMisses)
+{
+    public double avgWaitMillis()
+    {
+        return avgWaitNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double maxWaitMillis()
+    {
+        return maxWaitNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double statementCacheHitRatio()
+    {
+        long lookups = statementCacheHits + statementCacheMisses;
+        return lookups == 0 ? 0 : statementCacheHits / (double) lookups;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format(
+                "active=%d idle=%d max=%d waiting=%d borrows=%d avgWait=%.3fms maxWait=%.3fms timeouts=%d leaks=%d created=%d destroyed=%d"
+                        + " stmtHits=%d stmtMisses=%d",
+                active, idle, maxSize, waiting, borrows, avgWaitMillis(), maxWaitMillis(),
+                timeouts, leaksDetected, created, destroyed, statementCacheHits, statementCacheMisses);
+    }
+}
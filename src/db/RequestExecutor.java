@@ -0,0 +1,152 @@
+/**
+ * RequestExecutor.java
+ * Runs each database request on its own virtual thread.
+ *
+ * Virtual threads make "one thread per request" cheap: a request blocked
+ * on JDBC I/O parks its virtual thread and frees the carrier thread for
+ * other work. What does not scale is the connection pool, so a Semaphore
+ * sized to the pool (db.pool.maxSize) lets only that many requests talk to
+ * the database at once. The rest wait as parked virtual threads, which
+ * costs a few hundred bytes each, instead of piling up inside the pool
+ * and timing out on borrow.
+ *
+ * try (RequestExecutor executor = new RequestExecutor())
+ * {
+ *     CompletableFuture<Optional<Student>> s = executor.submit(() -> repository.findById(1));
+ * }
+ */
+
+package db;
+
+import java.sql.SQLException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+public class RequestExecutor implements AutoCloseable
+{
+    /** One database request. */
+    @FunctionalInterface
+    public interface Request<T>
+    {
+        T run() throws SQLException;
+    }
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    /** Bounded by db.pool.maxSize, the size of the shared connection pool. */
+    public RequestExecutor()
+    {
+        this(Config.get().poolMaxSize());
+    }
+
+    public RequestExecutor(int maxConcurrent)
+    {
+        this(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("db-request-", 0).factory()), maxConcurrent);
+    }
+
+    /** Uses another executor, e.g. a fixed platform-thread pool to compare against. */
+    public RequestExecutor(ExecutorService executor, int maxConcurrent)
+    {
+        if (maxConcurrent < 1)
+        {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        }
+        this.executor = executor;
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    public <T> CompletableFuture<T> submit(Request<T> request)
+    {
+        submitted.increment();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try
+        {
+            executor.execute(() -> run(request, result));
+        }
+        catch (RejectedExecutionException e)
+        {
+            failed.increment();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    public Stats stats()
+    {
+        return new Stats(submitted.sum(), completed.sum(), failed.sum(),
+                maxConcurrent - permits.availablePermits(), permits.getQueueLength(), waitNanos.sum());
+    }
+
+    /** Stops accepting requests and waits for the running ones to finish. */
+    @Override
+    public void close()
+    {
+        executor.close();
+    }
+
+    private <T> void run(Request<T> request, CompletableFuture<T> result)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            permits.acquire();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            failed.increment();
+            result.completeExceptionally(e);
+            return;
+        }
+        waitNanos.add(System.nanoTime() - start);
+
+        T value;
+        try
+        {
+            value = request.run();
+        }
+        catch (Throwable t)
+        {
+            permits.release();
+            failed.increment();
+            result.completeExceptionally(t);
+            if (t instanceof Error error)
+            {
+                throw error;
+            }
+            return;
+        }
+        // Release and count before completing, so callers woken by the future see up-to-date stats
+        permits.release();
+        completed.increment();
+        result.complete(value);
+    }
+
+    /**
+     * inFlight requests hold a permit, queued ones are waiting for one.
+     * A steadily growing queue means the pool (and maxConcurrent) is too small for the load.
+     */
+    public record Stats(long submitted, long completed, long failed, int inFlight, int queued, long totalWaitNanos)
+    {
+        public double avgWaitMillis()
+        {
+            long started = completed + failed;
+            return started == 0 ? 0 : totalWaitNanos / (double) started / 1e6;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("submitted=%d completed=%d failed=%d inFlight=%d queued=%d avgWait=%.3fms",
+                    submitted, completed, failed, inFlight, queued, avgWaitMillis());
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * RowMapper.java
+ * Maps ResultSet rows to objects by column index, resolved once per ResultSet.
+ *
+ * rs.getString("name") looks the label up (case-insensitively) on every
+ * call, for every row. A RowMapper knows its columns up front: bind(rs)
+ * finds their positions once from the ResultSetMetaData, and each row is
+ * then read with getInt(int) / getString(int) and a plain constructor call,
+ * with no lookups or reflection per row.
+ *
+ * The same column list generates the SELECT, so queries name exactly the
+ * columns they need instead of transferring everything with SELECT *:
+ *
+ * RowMapper<Student> mapper = RowMapper.of(
+ *         (rs, c) -> new Student(rs.getInt(c[0]), rs.getString(c[1]), rs.getObject(c[2], Integer.class), rs.getString(c[3])),
+ *         "id", "name", "age", "email");
+ *
+ * mapper.selectFrom("students")   // SELECT id, name, age, email FROM students
+ * mapper.list(rs)                 // every row as a Student
+ */
+
+package db;
+
+import java.sql.*;
+import java.util.*;
+
+public final class RowMapper<T>
+{
+    /** Reads one row; columns[i] is the ResultSet index of the i-th mapper column. */
+    @FunctionalInterface
+    public interface Reader<T>
+    {
+        T read(ResultSet rs, int[] columns) throws SQLException;
+    }
+
+    private final Reader<T> reader;
+    private final String[] columns;
+    private final int[] inOrder;
+
+    private RowMapper(Reader<T> reader, String[] columns)
+    {
+        this.reader = reader;
+        this.columns = columns;
+        this.inOrder = new int[columns.length];
+        for (int i = 0; i < columns.length; i++)
+        {
+            inOrder[i] = i + 1;
+        }
+    }
+
+    public static <T> RowMapper<T> of(Reader<T> reader, String... columns)
+    {
+        if (columns.length == 0)
+        {
+            throw new IllegalArgumentException("A RowMapper needs at least one column");
+        }
+        return new RowMapper<>(reader, columns.clone());
+    }
+
+    public List<String> columns()
+    {
+        return List.of(columns);
+    }
+
+    /** "id, name, age, email" */
+    public String columnList()
+    {
+        return String.join(", ", columns);
+    }
+
+    /** "c.id, c.title, c.teacher" for a query where the table is aliased as c. */
+    public String columnList(String alias)
+    {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (String column : columns)
+        {
+            joiner.add(alias + "." + column);
+        }
+        return joiner.toString();
+    }
+
+    /** "SELECT id, name, age, email FROM students" */
+    public String selectFrom(String table)
+    {
+        return "SELECT " + columnList() + " FROM " + table;
+    }
+
+    /** Resolves the column positions in rs; the result maps the current row of rs. */
+    public Bound<T> bind(ResultSet rs) throws SQLException
+    {
+        return new Bound<>(reader, rs, resolve(rs.getMetaData()));
+    }
+
+    /** Maps all remaining rows of rs. */
+    public List<T> list(ResultSet rs) throws SQLException
+    {
+        Bound<T> bound = bind(rs);
+        List<T> rows = new ArrayList<>();
+        while (rs.next())
+        {
+            rows.add(bound.map());
+        }
+        return rows;
+    }
+
+    private int[] resolve(ResultSetMetaData meta) throws SQLException
+    {
+        int count = meta.getColumnCount();
+        // A query built from columnList() has the columns first and in order: nothing to look up
+        boolean leading = count >= columns.length;
+        for (int i = 0; leading && i < columns.length; i++)
+        {
+            leading = meta.getColumnLabel(i + 1).equalsIgnoreCase(label(columns[i]));
+        }
+        if (leading)
+        {
+            return inOrder;
+        }
+
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = count; i >= 1; i--)
+        {
+            // Iterating backwards keeps the first occurrence of a duplicated label
+            positions.put(meta.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+        int[] resolved = new int[columns.length];
+        for (int i = 0; i < columns.length; i++)
+        {
+            Integer position = positions.get(label(columns[i]).toLowerCase(Locale.ROOT));
+            if (position == null)
+            {
+                throw new SQLException("Column " + columns[i] + " is not in the result");
+            }
+            resolved[i] = position;
+        }
+        return resolved;
+    }
+
+    private static String label(String column)
+    {
+        return column.substring(column.lastIndexOf('.') + 1);
+    }
+
+    /** A RowMapper with its column positions resolved for one ResultSet. */
+    public static final class Bound<T>
+    {
+        private final Reader<T> reader;
+        private final ResultSet rs;
+        private final int[] columns;
+
+        private Bound(Reader<T> reader, ResultSet rs, int[] columns)
+        {
+            this.reader = reader;
+            this.rs = rs;
+            this.columns = columns;
+        }
+
+        public T map() throws SQLException
+        {
+            return reader.read(rs, columns);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+/**
+ * SlowQueryLog.java
+ * Logs statements that take longer than a threshold, with their parameters
+ * and, for a sample of them, the EXPLAIN (ANALYZE, BUFFERS) plan.
+ *
+ * instrument(dataSource) wraps connections and statements like SqlMetrics
+ * does. Fast statements only cost two nanoTime() calls; when one exceeds
+ * the threshold its SQL, bound parameters and duration are printed:
+ *
+ *   🐢 Slow query: 812.4 ms (threshold 500 ms)
+ *      SELECT * FROM students WHERE name = ?
+ *      params: [<String>]
+ *      plan:
+ *        Seq Scan on students  (cost=0.00..1693.00 rows=1 width=41)
+ *          Filter: ((name)::text = $1)
+ *
+ * which shows a missing index without attaching a profiler.
+ *
+ * The plan is captured in the background on a separate connection from
+ * explainSource, in a read-only transaction that is rolled back, so EXPLAIN
+ * ANALYZE can never change data (plans for INSERT/UPDATE/DELETE are skipped
+ * that way). Only sampleRate of the slow statements are explained (none by
+ * default: ANALYZE runs the statement a second time), and explains are
+ * dropped when too many are already waiting.
+ *
+ * Parameters are redacted according to Redaction: NONE prints values,
+ * STRINGS hides text values (names, emails) but keeps numbers, ALL only
+ * prints types. Redaction only applies to what is printed: the plan is
+ * still captured with the real values, and unless Redaction is NONE the
+ * constants PostgreSQL prints in its conditions ('alice'::text, and under
+ * ALL also numbers) are masked before the plan is logged. Plain Statements
+ * with literals in the SQL are printed normalized, and errors only show
+ * their SQLState, since messages like "Key (email)=(...)" quote values.
+ */
+
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+
+public final class SlowQueryLog
+{
+    /** How much of the bound parameters is printed. */
+    public enum Redaction
+    {
+        NONE, STRINGS, ALL
+    }
+
+    private static final int MAX_PENDING_EXPLAINS = 16;
+
+    private static final Pattern QUOTED = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER = Pattern.compile("(?<![\\w$.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    // Plan detail lines that print expressions, e.g. "Index Cond: (id = 42)" or "Filter: ((name)::text = 'alice'::text)"
+    private static final Pattern CONDITION = Pattern.compile("^\\s*(?:[A-Z][A-Za-z-]* )*(?:Cond|Filter|Key):");
+
+    private final DataSource explainSource;
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final Redaction redaction;
+    private final ExecutorService explainer;
+
+    private final LongAdder slowQueries = new LongAdder();
+    private final LongAdder explained = new LongAdder();
+
+    /**
+     * @param explainSource where EXPLAIN connections come from; should not itself be instrumented
+     * @param sampleRate fraction of slow statements to EXPLAIN, 0 to never run EXPLAIN
+     */
+    public SlowQueryLog(DataSource explainSource, long thresholdMs, double sampleRate, Redaction redaction)
+    {
+        this.explainSource = explainSource;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        this.sampleRate = sampleRate;
+        this.redaction = redaction;
+        this.explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_PENDING_EXPLAINS),
+                r -> Thread.ofPlatform().daemon().name("slow-query-explain").unstarted(r));
+    }
+
+    /** Reads db.slowQuery.* from config. */
+    public static SlowQueryLog fromConfig(Config config, DataSource explainSource)
+    {
+        return new SlowQueryLog(explainSource, config.slowQueryThresholdMs(), config.slowQueryExplainSampleRate(),
+                Redaction.valueOf(config.slowQueryRedaction().toUpperCase(Locale.ROOT)));
+    }
+
+    public DataSource instrument(DataSource dataSource)
+    {
+        return (DataSource) Proxy.newProxyInstance(
+                DataSource.class.getClassLoader(),
+                new Class<?>[] { DataSource.class },
+                (proxy, method, args) -> {
+                    Object result = invokeOn(dataSource, method, args);
+                    return result instanceof Connection conn ? wrapConnection(conn) : result;
+                });
+    }
+
+    public Connection wrapConnection(Connection conn)
+    {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new ConnectionHandler(conn));
+    }
+
+    public long slowQueryCount()
+    {
+        return slowQueries.sum();
+    }
+
+    public long explainedCount()
+    {
+        return explained.sum();
+    }
+
+    private void report(String sql, List<Object> params, long nanos, boolean batch, Throwable error)
+    {
+        slowQueries.increment();
+        StringBuilder message = new StringBuilder();
+        message.append(String.format("🐢 Slow query: %.1f ms (threshold %d ms)%s%n",
+                nanos / 1e6, TimeUnit.NANOSECONDS.toMillis(thresholdNanos), error == null ? "" : " ❌ " + describe(error)));
+        message.append("   ").append(params == null && redaction != Redaction.NONE ? SqlMetrics.normalize(sql) : sql).append('\n');
+        if (params != null && !params.isEmpty())
+        {
+            message.append("   params").append(batch ? " (last row of batch)" : "").append(": ")
+                    .append(redact(params)).append('\n');
+        }
+        boolean explain = !batch && error == null && sampleRate > 0
+                && ThreadLocalRandom.current().nextDouble() < sampleRate;
+        if (!explain)
+        {
+            System.out.print(message);
+            return;
+        }
+        List<Object> bound = params == null ? List.of() : new ArrayList<>(params);
+        try
+        {
+            explainer.execute(() -> System.out.print(message.append(explain(sql, bound))));
+        }
+        catch (RejectedExecutionException e)
+        {
+            System.out.print(message.append("   plan: skipped, ").append(MAX_PENDING_EXPLAINS).append(" already pending\n"));
+        }
+    }
+
+    private String redact(List<Object> params)
+    {
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for (Object value : params)
+        {
+            if (value == null || redaction == Redaction.NONE
+                    || (redaction == Redaction.STRINGS && (value instanceof Number || value instanceof Boolean)))
+            {
+                joiner.add(String.valueOf(value));
+            }
+            else
+            {
+                joiner.add("<" + value.getClass().getSimpleName() + ">");
+            }
+        }
+        return joiner.toString();
+    }
+
+    private String describe(Throwable error)
+    {
+        if (redaction == Redaction.NONE)
+        {
+            return error.getMessage();
+        }
+        return error instanceof SQLException e ? "SQLState " + e.getSQLState() : error.getClass().getSimpleName();
+    }
+
+    /**
+     * Runs EXPLAIN (ANALYZE, BUFFERS) with the bound values in a read-only
+     * transaction that is rolled back, and masks the values in its output.
+     */
+    private String explain(String sql, List<Object> params)
+    {
+        StringBuilder plan = new StringBuilder("   plan:\n");
+        try (Connection conn = explainSource.getConnection())
+        {
+            conn.setAutoCommit(false);
+            conn.setReadOnly(true);
+            try (PreparedStatement ps = conn.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) " + sql))
+            {
+                for (int i = 0; i < params.size(); i++)
+                {
+                    ps.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery())
+                {
+                    while (rs.next())
+                    {
+                        plan.append("     ").append(redactPlan(rs.getString(1))).append('\n');
+                    }
+                }
+                explained.increment();
+            }
+            finally
+            {
+                conn.rollback();
+            }
+        }
+        catch (SQLException e)
+        {
+            plan.append("     (not available: ").append(describe(e)).append(")\n");
+        }
+        return plan.toString();
+    }
+
+    /** Masks the constants in one line of plan output; costs, timings and row counts stay. */
+    private String redactPlan(String line)
+    {
+        if (redaction == Redaction.NONE || !CONDITION.matcher(line).find())
+        {
+            return line;
+        }
+        String masked = QUOTED.matcher(line).replaceAll("'?'");
+        return redaction == Redaction.ALL ? NUMBER.matcher(masked).replaceAll("?") : masked;
+    }
+
+    private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable
+    {
+        try
+        {
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler
+    {
+        private final Connection conn;
+
+        ConnectionHandler(Connection conn)
+        {
+            this.conn = conn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            switch (method.getName())
+            {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "SlowQueryLogged[" + conn + "]";
+                default:
+                    break;
+            }
+            Object result = invokeOn(conn, method, args);
+            return switch (method.getName())
+            {
+                case "prepareStatement", "prepareCall" -> wrap(result, (String) args[0], method.getReturnType(), proxy);
+                case "createStatement" -> wrap(result, null, Statement.class, proxy);
+                default -> result;
+            };
+        }
+
+        private Object wrap(Object statement, String sql, Class<?> type, Object owner)
+        {
+            return Proxy.newProxyInstance(
+                    type.getClassLoader(),
+                    new Class<?>[] { type },
+                    new StatementHandler((Statement) statement, sql, (Connection) owner));
+        }
+    }
+
+    /** Remembers bound parameters of a PreparedStatement and times its execute calls. */
+    private final class StatementHandler implements InvocationHandler
+    {
+        private final Statement statement;
+        private final String preparedSql;
+        private final Connection owner;
+        private final List<Object> params;
+
+        StatementHandler(Statement statement, String preparedSql, Connection owner)
+        {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+            this.owner = owner;
+            this.params = preparedSql == null ? null : new ArrayList<>();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            String name = method.getName();
+            switch (name)
+            {
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "SlowQueryLogged[" + statement + "]";
+                case "clearParameters":
+                    if (params != null)
+                    {
+                        params.clear();
+                    }
+                    break;
+                default:
+                    if (params != null && name.startsWith("set") && args != null && args.length >= 2
+                            && args[0] instanceof Integer index)
+                    {
+                        bind(index, name.equals("setNull") ? null : args[1]);
+                    }
+                    break;
+            }
+            if (!name.startsWith("execute"))
+            {
+                return invokeOn(statement, method, args);
+            }
+
+            boolean plain = args != null && args.length > 0 && args[0] instanceof String;
+            String sql = plain ? (String) args[0] : preparedSql;
+            boolean batch = name.startsWith("executeBatch") || name.startsWith("executeLargeBatch");
+            long start = System.nanoTime();
+            try
+            {
+                Object result = invokeOn(statement, method, args);
+                long elapsed = System.nanoTime() - start;
+                if (elapsed >= thresholdNanos && sql != null)
+                {
+                    report(sql, plain ? null : params, elapsed, batch, null);
+                }
+                return result;
+            }
+            catch (Throwable t)
+            {
+                long elapsed = System.nanoTime() - start;
+                if (elapsed >= thresholdNanos && sql != null)
+                {
+                    report(sql, plain ? null : params, elapsed, batch, t);
+                }
+                throw t;
+            }
+        }
+
+        private void bind(int index, Object value)
+        {
+            while (params.size() < index)
+            {
+                params.add(null);
+            }
+            params.set(index - 1, value);
+        }
+    }
+}
@@ -0,0 +1,589 @@
+/**
+ * SqlMetrics.java
+ * Per-statement latency and row counts, collected by wrapping a DataSource.
+ *
+ * instrument(dataSource) returns a DataSource whose connections, statements
+ * and result sets are thin proxies around the real ones. Every execute call
+ * is timed and recorded under the normalized SQL: literals become ?,
+ * whitespace is collapsed and repeated VALUES groups are folded, so
+ *
+ *   SELECT * FROM students WHERE id = 7
+ *   SELECT * FROM students WHERE id = 8
+ *
+ * are counted together. For each statement it keeps the number of calls and
+ * errors, rows returned (counted as the ResultSet is read) or affected, and a
+ * latency histogram for p50 / p95 / p99 / max.
+ *
+ * The hot path takes no locks: counters are LongAdders, which spread
+ * concurrent increments over per-thread cells, and each distinct SQL text
+ * is normalized only the first time it is seen: prepared statements repeat
+ * their text verbatim, so later prepares are one map lookup. Query latency is the executeQuery
+ * call (up to the first rows), not the time spent reading the ResultSet.
+ *
+ * SqlMetrics metrics = new SqlMetrics();
+ * DataSource ds = metrics.instrument(Database.getPool());
+ * ...
+ * metrics.dump(System.out);
+ */
+
+package db;
+
+import java.io.PrintStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+
+public final class SqlMetrics
+{
+    /** Distinct statements tracked; anything beyond is counted under OTHER. */
+    static final int MAX_STATEMENTS = 1000;
+    static final String OTHER = "<other statements>";
+    /** Raw SQL texts whose entry is remembered; texts beyond this are normalized on every call. */
+    static final int MAX_CACHED_SQL = 10_000;
+
+    private static final Pattern VALUES_GROUPS = Pattern.compile("\\(\\?(?:, \\?)*\\)(?:, \\(\\?(?:, \\?)*\\))+");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN \\(\\?(?:, \\?)+\\)");
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // Raw SQL text -> its entry, so normalize() runs once per text and not once per prepare
+    private final ConcurrentHashMap<String, Entry> bySql = new ConcurrentHashMap<>();
+
+    /** Wraps dataSource so that every statement run on its connections is recorded here. */
+    public DataSource instrument(DataSource dataSource)
+    {
+        return (DataSource) Proxy.newProxyInstance(
+                DataSource.class.getClassLoader(),
+                new Class<?>[] { DataSource.class },
+                (proxy, method, args) -> {
+                    Object result = invokeOn(dataSource, method, args);
+                    return result instanceof Connection conn ? wrapConnection(conn) : result;
+                });
+    }
+
+    /** Wraps a single connection. */
+    public Connection wrapConnection(Connection conn)
+    {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new ConnectionHandler(conn));
+    }
+
+    /** Current statistics, slowest statement (by total time) first. */
+    public List<SqlStats> snapshot()
+    {
+        List<SqlStats> stats = new ArrayList<>(entries.size());
+        entries.forEach((sql, entry) -> stats.add(entry.stats(sql)));
+        stats.sort(Comparator.comparingLong(SqlStats::totalNanos).reversed());
+        return stats;
+    }
+
+    public Optional<SqlStats> stats(String sql)
+    {
+        String key = normalize(sql);
+        Entry entry = entries.get(key);
+        return entry == null ? Optional.empty() : Optional.of(entry.stats(key));
+    }
+
+    public void reset()
+    {
+        bySql.clear();
+        entries.clear();
+    }
+
+    public void dump(PrintStream out)
+    {
+        List<SqlStats> stats = snapshot();
+        out.println("📊 SQL statistics (" + stats.size() + " statements, by total time)");
+        out.printf("%8s %6s %10s %9s %9s %9s %9s %10s  %s%n",
+                "calls", "errors", "rows", "p50 ms", "p95 ms", "p99 ms", "max ms", "total ms", "sql");
+        for (SqlStats s : stats)
+        {
+            out.printf("%8d %6d %10d %9.3f %9.3f %9.3f %9.3f %10.1f  %s%n",
+                    s.calls(), s.errors(), s.rows(), s.p50Nanos() / 1e6, s.p95Nanos() / 1e6, s.p99Nanos() / 1e6,
+                    s.maxNanos() / 1e6, s.totalNanos() / 1e6, s.sql());
+        }
+    }
+
+    /** Prints the statistics to System.out when the JVM exits. */
+    public void dumpOnShutdown()
+    {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> dump(System.out), "sql-metrics-dump"));
+    }
+
+    /**
+     * Replaces string and numeric literals with ?, collapses whitespace and
+     * folds multi-row VALUES lists and IN lists, so statements that differ only
+     * in their values share one entry.
+     */
+    static String normalize(String sql)
+    {
+        StringBuilder out = new StringBuilder(sql.length());
+        int n = sql.length();
+        int i = 0;
+        while (i < n)
+        {
+            char c = sql.charAt(i);
+            if (c == '\'')
+            {
+                i++;
+                while (i < n)
+                {
+                    if (sql.charAt(i) == '\'')
+                    {
+                        if (i + 1 < n && sql.charAt(i + 1) == '\'')
+                        {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                i++;
+                out.append('?');
+            }
+            else if (Character.isDigit(c) && (out.isEmpty() || !isIdentifierPart(out.charAt(out.length() - 1))))
+            {
+                while (i < n && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.'))
+                {
+                    i++;
+                }
+                out.append('?');
+            }
+            else if (Character.isWhitespace(c))
+            {
+                while (i < n && Character.isWhitespace(sql.charAt(i)))
+                {
+                    i++;
+                }
+                if (!out.isEmpty())
+                {
+                    out.append(' ');
+                }
+            }
+            else if (c == ',' || c == '(' || c == ')')
+            {
+                // Canonical spacing around list punctuation, so "(?,?)" and "( ?, ? )" match
+                if (c == ')' && !out.isEmpty() && out.charAt(out.length() - 1) == ' ')
+                {
+                    out.setLength(out.length() - 1);
+                }
+                out.append(c);
+                if (c == ',')
+                {
+                    out.append(' ');
+                }
+                i++;
+                while (c != ')' && i < n && Character.isWhitespace(sql.charAt(i)))
+                {
+                    i++;
+                }
+            }
+            else
+            {
+                out.append(c);
+                i++;
+            }
+        }
+        int end = out.length();
+        while (end > 0 && (out.charAt(end - 1) == ' ' || out.charAt(end - 1) == ';'))
+        {
+            end--;
+        }
+        out.setLength(end);
+        String folded = VALUES_GROUPS.matcher(out).replaceAll("(...), ...");
+        return IN_LIST.matcher(folded).replaceAll("IN (...)");
+    }
+
+    private static boolean isIdentifierPart(char c)
+    {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private Entry entryForSql(String sql)
+    {
+        Entry entry = bySql.get(sql);
+        if (entry != null)
+        {
+            return entry;
+        }
+        entry = entry(normalize(sql));
+        // Statements with inlined literals produce endless distinct texts; stop remembering them at the cap
+        if (bySql.size() < MAX_CACHED_SQL)
+        {
+            bySql.putIfAbsent(sql, entry);
+        }
+        return entry;
+    }
+
+    private Entry entry(String normalizedSql)
+    {
+        Entry entry = entries.get(normalizedSql);
+        if (entry != null)
+        {
+            return entry;
+        }
+        if (entries.size() >= MAX_STATEMENTS)
+        {
+            return entries.computeIfAbsent(OTHER, k -> new Entry());
+        }
+        return entries.computeIfAbsent(normalizedSql, k -> new Entry());
+    }
+
+    private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable
+    {
+        try
+        {
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    /** Counters for one normalized statement. */
+    private static final class Entry
+    {
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        final Histogram latency = new Histogram();
+
+        void record(long nanos, boolean failed)
+        {
+            calls.increment();
+            if (failed)
+            {
+                errors.increment();
+            }
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            latency.record(nanos);
+        }
+
+        SqlStats stats(String sql)
+        {
+            long[] counts = latency.counts();
+            long max = maxNanos.get();
+            // Percentiles are bucket upper bounds, which can overshoot the largest value seen
+            return new SqlStats(sql, calls.sum(), errors.sum(), rows.sum(), totalNanos.sum(),
+                    Math.min(max, Histogram.percentile(counts, 0.50)), Math.min(max, Histogram.percentile(counts, 0.95)),
+                    Math.min(max, Histogram.percentile(counts, 0.99)), max);
+        }
+    }
+
+    /**
+     * Log-linear latency histogram in microseconds: each power of two is split
+     * into 8 buckets, so a reported percentile is within 12.5% of the real value.
+     */
+    static final class Histogram
+    {
+        private static final int SUB_BUCKETS = 8;
+        private static final int SUB_BITS = 3;
+        // Up to 2^40 us (about 12 days); anything slower goes into the last bucket
+        private static final int BUCKETS = (40 - SUB_BITS + 1) * SUB_BUCKETS + SUB_BUCKETS;
+
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        Histogram()
+        {
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos)
+        {
+            buckets[index(Math.max(0, nanos / 1000))].increment();
+        }
+
+        long[] counts()
+        {
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                counts[i] = buckets[i].sum();
+            }
+            return counts;
+        }
+
+        static int index(long micros)
+        {
+            if (micros < SUB_BUCKETS)
+            {
+                return (int) micros;
+            }
+            int msb = 63 - Long.numberOfLeadingZeros(micros);
+            int shift = msb - SUB_BITS;
+            int index = (shift + 1) * SUB_BUCKETS + (int) ((micros >>> shift) & (SUB_BUCKETS - 1));
+            return Math.min(index, BUCKETS - 1);
+        }
+
+        /** Upper bound of the bucket, in nanoseconds. */
+        static long upperBoundNanos(int index)
+        {
+            if (index < SUB_BUCKETS)
+            {
+                return (index + 1) * 1000L;
+            }
+            int shift = index / SUB_BUCKETS - 1;
+            long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+            return (lower + (1L << shift)) * 1000L;
+        }
+
+        static long percentile(long[] counts, double p)
+        {
+            long total = 0;
+            for (long c : counts)
+            {
+                total += c;
+            }
+            if (total == 0)
+            {
+                return 0;
+            }
+            long rank = (long) Math.ceil(p * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++)
+            {
+                seen += counts[i];
+                if (seen >= rank)
+                {
+                    return upperBoundNanos(i);
+                }
+            }
+            return upperBoundNanos(counts.length - 1);
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler
+    {
+        private final Connection conn;
+
+        ConnectionHandler(Connection conn)
+        {
+            this.conn = conn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            switch (method.getName())
+            {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Instrumented[" + conn + "]";
+                default:
+                    break;
+            }
+            Object result = invokeOn(conn, method, args);
+            return switch (method.getName())
+            {
+                case "prepareStatement", "prepareCall" ->
+                        wrapStatement((Statement) result, entryForSql((String) args[0]), method.getReturnType(), proxy);
+                case "createStatement" -> wrapStatement((Statement) result, null, Statement.class, proxy);
+                default -> result;
+            };
+        }
+
+        private Object wrapStatement(Statement statement, Entry entry, Class<?> type, Object owner)
+        {
+            return Proxy.newProxyInstance(
+                    type.getClassLoader(),
+                    new Class<?>[] { type },
+                    new StatementHandler(statement, entry, (Connection) owner));
+        }
+    }
+
+    /** Times execute calls; entry is fixed for prepared statements and per call for plain ones. */
+    private final class StatementHandler implements InvocationHandler
+    {
+        private final Statement statement;
+        private final Entry prepared;
+        private final Connection owner;
+
+        StatementHandler(Statement statement, Entry prepared, Connection owner)
+        {
+            this.statement = statement;
+            this.prepared = prepared;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            String name = method.getName();
+            switch (name)
+            {
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Instrumented[" + statement + "]";
+                case "getResultSet":
+                    ResultSet current = (ResultSet) invokeOn(statement, method, args);
+                    return current == null || prepared == null ? current : wrapResultSet(current, prepared);
+                default:
+                    break;
+            }
+            if (!name.startsWith("execute"))
+            {
+                return invokeOn(statement, method, args);
+            }
+
+            Entry entry = prepared;
+            if (args != null && args.length > 0 && args[0] instanceof String sql)
+            {
+                entry = entryForSql(sql);
+            }
+            if (entry == null)
+            {
+                // executeBatch() on a plain Statement mixes several SQL strings
+                entry = entry("<statement batch>");
+            }
+            long start = System.nanoTime();
+            Object result;
+            try
+            {
+                result = invokeOn(statement, method, args);
+            }
+            catch (Throwable t)
+            {
+                entry.record(System.nanoTime() - start, true);
+                throw t;
+            }
+            entry.record(System.nanoTime() - start, false);
+
+            if (result instanceof ResultSet rs)
+            {
+                return wrapResultSet(rs, entry);
+            }
+            if (result instanceof Integer count && count > 0)
+            {
+                entry.rows.add(count);
+            }
+            else if (result instanceof Long count && count > 0)
+            {
+                entry.rows.add(count);
+            }
+            else if (result instanceof int[] counts)
+            {
+                for (int c : counts)
+                {
+                    if (c > 0)
+                    {
+                        entry.rows.add(c);
+                    }
+                }
+            }
+            else if (result instanceof long[] counts)
+            {
+                for (long c : counts)
+                {
+                    if (c > 0)
+                    {
+                        entry.rows.add(c);
+                    }
+                }
+            }
+            return result;
+        }
+
+        private ResultSet wrapResultSet(ResultSet rs, Entry entry)
+        {
+            return (ResultSet) Proxy.newProxyInstance(
+                    ResultSet.class.getClassLoader(),
+                    new Class<?>[] { ResultSet.class },
+                    new ResultSetHandler(rs, entry));
+        }
+    }
+
+    /** Counts rows as next() returns them and adds the count to the entry on close. */
+    private static final class ResultSetHandler implements InvocationHandler
+    {
+        private final ResultSet rs;
+        private final Entry entry;
+        private long rows;
+        private boolean reported;
+
+        ResultSetHandler(ResultSet rs, Entry entry)
+        {
+            this.rs = rs;
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            switch (method.getName())
+            {
+                case "next":
+                    boolean more = rs.next();
+                    if (more)
+                    {
+                        rows++;
+                    }
+                    else
+                    {
+                        report();
+                    }
+                    return more;
+                case "close":
+                    report();
+                    rs.close();
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return invokeOn(rs, method, args);
+            }
+        }
+
+        private void report()
+        {
+            if (!reported)
+            {
+                reported = true;
+                entry.rows.add(rows);
+            }
+        }
+    }
+
+    /** Statistics for one normalized statement; latencies in nanoseconds. */
+    public record SqlStats(String sql, long calls, long errors, long rows, long totalNanos,
+                           long p50Nanos, long p95Nanos, long p99Nanos, long maxNanos)
+    {
+        public double avgMillis()
+        {
+            return calls == 0 ? 0 : totalNanos / (double) calls / 1e6;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("calls=%d errors=%d rows=%d avg=%.3fms p50=%.3fms p95=%.3fms p99=%.3fms max=%.3fms %s",
+                    calls, errors, rows, avgMillis(), p50Nanos / 1e6, p95Nanos / 1e6, p99Nanos / 1e6, maxNanos / 1e6, sql);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/**
+ * StatementCache.java
+ * LRU cache of PreparedStatements for one physical connection, keyed by SQL text.
+ *
+ * The PostgreSQL driver already keeps parsed queries and their server-side
+ * prepared statements per connection (preparedStatementCacheQueries), so a
+ * statement prepared again with the same SQL keeps its prepareThreshold
+ * count and its server-side plan. What this cache saves is the work around
+ * that: a new PreparedStatement object, the driver's cache lookup and its
+ * bookkeeping on every prepareStatement/close pair. That is a client-side
+ * CPU saving for hot, short statements; it does not change what the server
+ * parses or plans.
+ *
+ * close() on a cached statement closes the ResultSets it left open and hands
+ * it back; the real statement is closed when it is evicted or when the
+ * connection is closed.
+ */
+
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+final class StatementCache
+{
+    private final int capacity;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LinkedHashMap<String, Entry> entries;
+
+    StatementCache(int capacity, LongAdder hits, LongAdder misses)
+    {
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+            {
+                if (size() <= StatementCache.this.capacity)
+                {
+                    return false;
+                }
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns a cached statement for sql, or prepares and caches a new one.
+     * If the cached statement is still open elsewhere (the same SQL used twice
+     * at once), an uncached statement is returned instead; closing it closes it.
+     */
+    synchronized PreparedStatement prepare(Connection physical, String sql, Connection owner) throws SQLException
+    {
+        Entry entry = entries.get(sql);
+        if (entry != null && !entry.inUse)
+        {
+            hits.increment();
+            entry.inUse = true;
+            return handle(entry, entry.statement, owner);
+        }
+
+        misses.increment();
+        PreparedStatement ps = physical.prepareStatement(sql);
+        if (entry != null)
+        {
+            return handle(null, ps, owner);
+        }
+        entry = new Entry(sql, ps);
+        entry.inUse = true;
+        entries.put(sql, entry);
+        return handle(entry, ps, owner);
+    }
+
+    synchronized void closeAll()
+    {
+        for (Entry entry : entries.values())
+        {
+            entry.evict();
+        }
+        entries.clear();
+    }
+
+    private PreparedStatement handle(Entry entry, PreparedStatement statement, Connection owner)
+    {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new Handle(entry, statement, owner));
+    }
+
+    private void checkIn(Entry entry)
+    {
+        // Still marked in use, so no other caller can get the statement while it is reset
+        boolean reusable = entry.reset();
+        synchronized (this)
+        {
+            entry.inUse = false;
+            if (!reusable)
+            {
+                entries.remove(entry.sql, entry);
+                entry.evicted = true;
+            }
+            if (entry.evicted)
+            {
+                entry.closeQuietly();
+            }
+        }
+    }
+
+    /** A cached statement; inUse and evicted are guarded by the StatementCache monitor. */
+    private static final class Entry
+    {
+        final String sql;
+        final PreparedStatement statement;
+        boolean inUse;
+        boolean evicted;
+
+        Entry(String sql, PreparedStatement statement)
+        {
+            this.sql = sql;
+            this.statement = statement;
+        }
+
+        // Leave the statement as a freshly prepared one for the next caller
+        boolean reset()
+        {
+            try
+            {
+                statement.clearParameters();
+                statement.clearBatch();
+                statement.setFetchSize(0);
+                statement.setMaxRows(0);
+                statement.setQueryTimeout(0);
+                return true;
+            }
+            catch (SQLException e)
+            {
+                return false;
+            }
+        }
+
+        void evict()
+        {
+            evicted = true;
+            if (!inUse)
+            {
+                closeQuietly();
+            }
+        }
+
+        void closeQuietly()
+        {
+            try
+            {
+                statement.close();
+            }
+            catch (SQLException ignored)
+            {
+                // The statement is being thrown away anyway
+            }
+        }
+    }
+
+    /** The PreparedStatement the caller sees for one check-out; entry is null for an uncached statement. */
+    private final class Handle implements InvocationHandler
+    {
+        private final Entry entry;
+        private final PreparedStatement statement;
+        private final Connection owner;
+        // ResultSets of the latest execution; executing again closes the earlier ones anyway
+        private final List<ResultSet> results = new ArrayList<>();
+        private boolean closed;
+
+        Handle(Entry entry, PreparedStatement statement, Connection owner)
+        {
+            this.entry = entry;
+            this.statement = statement;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            switch (method.getName())
+            {
+                case "close":
+                    if (!closed)
+                    {
+                        closed = true;
+                        if (entry == null)
+                        {
+                            statement.close();
+                        }
+                        else
+                        {
+                            closeResults();
+                            checkIn(entry);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return (entry == null ? "UncachedStatement[" : "CachedStatement[") + statement + "]";
+                default:
+                    break;
+            }
+            if (closed)
+            {
+                throw new SQLException("PreparedStatement is closed");
+            }
+            if (method.getName().startsWith("execute"))
+            {
+                results.clear();
+            }
+            try
+            {
+                Object result = method.invoke(statement, args);
+                if (result instanceof ResultSet rs)
+                {
+                    results.add(rs);
+                }
+                return result;
+            }
+            catch (InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+        }
+
+        // An open ResultSet would otherwise keep its rows (or its server-side cursor) until the next execution
+        private void closeResults()
+        {
+            for (ResultSet rs : results)
+            {
+                try
+                {
+                    rs.close();
+                }
+                catch (SQLException ignored)
+                {
+                    // The statement is reset next; a broken one is evicted there
+                }
+            }
+            results.clear();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/**
+ * TransactionTemplate.java
+ * Runs a unit of work in one transaction and retries it when PostgreSQL
+ * aborts it for a reason that goes away on its own.
+ *
+ * The template does the setAutoCommit(false) / commit() / rollback() dance
+ * that Main and statements.examples.Example3/4 write by hand. When the
+ * transaction fails with
+ *   40001 serialization_failure (SERIALIZABLE / REPEATABLE READ conflicts)
+ *   40P01 deadlock_detected
+ * it rolls back, waits a random ("full jitter") backoff so that the
+ * competing transactions do not collide again in lockstep, and runs the
+ * work again from the start on a fresh connection.
+ *
+ * The work must therefore be safe to run more than once: do all reads and
+ * writes through the Connection it is given, and no side effects outside it.
+ */
+
+package db;
+
+import java.sql.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.sql.DataSource;
+
+public class TransactionTemplate
+{
+    /** Leave the connection's isolation level as it is. */
+    public static final int DEFAULT_ISOLATION = -1;
+
+    /** A unit of work that runs inside the transaction. */
+    @FunctionalInterface
+    public interface Work<T>
+    {
+        T run(Connection conn) throws SQLException;
+    }
+
+    private final DataSource dataSource;
+    private final int isolation;
+    private final int maxAttempts;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+    private final Stats stats;
+
+    public TransactionTemplate(DataSource dataSource)
+    {
+        this(dataSource, DEFAULT_ISOLATION,
+                Config.get().txMaxAttempts(),
+                Config.get().txBaseBackoffMs(),
+                Config.get().txMaxBackoffMs());
+    }
+
+    public TransactionTemplate(DataSource dataSource, int isolation, int maxAttempts, long baseBackoffMs, long maxBackoffMs)
+    {
+        this(dataSource, isolation, maxAttempts, baseBackoffMs, maxBackoffMs, new Stats());
+    }
+
+    private TransactionTemplate(DataSource dataSource, int isolation, int maxAttempts, long baseBackoffMs,
+                                long maxBackoffMs, Stats stats)
+    {
+        if (maxAttempts < 1)
+        {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.dataSource = dataSource;
+        this.isolation = isolation;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMs = baseBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.stats = stats;
+    }
+
+    /**
+     * Same settings with another isolation level, e.g. Connection.TRANSACTION_SERIALIZABLE.
+     * Both templates record into the same stats.
+     */
+    public TransactionTemplate withIsolation(int isolation)
+    {
+        return new TransactionTemplate(dataSource, isolation, maxAttempts, baseBackoffMs, maxBackoffMs, stats);
+    }
+
+    /** Runs work in a transaction, retrying on serialization failures and deadlocks. */
+    public <T> T execute(Work<T> work) throws SQLException
+    {
+        for (int attempt = 1; ; attempt++)
+        {
+            long start = System.nanoTime();
+            try
+            {
+                T result = runOnce(work);
+                stats.record(start, true, attempt);
+                return result;
+            }
+            catch (SQLException e)
+            {
+                boolean retry = isRetryable(e) && attempt < maxAttempts;
+                stats.record(start, false, attempt);
+                if (!retry)
+                {
+                    throw e;
+                }
+                stats.retries.increment();
+                backOff(attempt);
+            }
+        }
+    }
+
+    public TxStats stats()
+    {
+        return stats.snapshot();
+    }
+
+    /** True for SQLStates that mean "run the whole transaction again". */
+    public static boolean isRetryable(SQLException e)
+    {
+        for (Throwable t = e; t != null; t = t.getCause())
+        {
+            if (t instanceof SQLException sql)
+            {
+                for (SQLException next = sql; next != null; next = next.getNextException())
+                {
+                    String state = next.getSQLState();
+                    if ("40001".equals(state) || "40P01".equals(state))
+                    {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private <T> T runOnce(Work<T> work) throws SQLException
+    {
+        try (Connection conn = dataSource.getConnection())
+        {
+            boolean autoCommit = conn.getAutoCommit();
+            int previousIsolation = conn.getTransactionIsolation();
+            try
+            {
+                conn.setAutoCommit(false);
+                if (isolation != DEFAULT_ISOLATION)
+                {
+                    conn.setTransactionIsolation(isolation);
+                }
+                T result = work.run(conn);
+                conn.commit();
+                return result;
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                try
+                {
+                    conn.rollback();
+                }
+                catch (SQLException rollbackEx)
+                {
+                    e.addSuppressed(rollbackEx);
+                }
+                throw e;
+            }
+            finally
+            {
+                restore(conn, autoCommit, previousIsolation);
+            }
+        }
+    }
+
+    private void restore(Connection conn, boolean autoCommit, int previousIsolation)
+    {
+        try
+        {
+            conn.setAutoCommit(autoCommit);
+            if (isolation != DEFAULT_ISOLATION)
+            {
+                conn.setTransactionIsolation(previousIsolation);
+            }
+        }
+        catch (SQLException ignored)
+        {
+            // The connection is closed right after this; a broken one is discarded by the pool
+        }
+    }
+
+    // Full jitter: sleep a random time between 0 and base * 2^attempt, capped at maxBackoffMs
+    private void backOff(int attempt) throws SQLException
+    {
+        long cap = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt, 20));
+        try
+        {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientException("Interrupted while waiting to retry the transaction", e);
+        }
+    }
+
+    private static final class Stats
+    {
+        final LongAdder committed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder timeInTxNanos = new LongAdder();
+        final AtomicLong maxTimeInTxNanos = new AtomicLong();
+        final AtomicLong maxAttempts = new AtomicLong();
+
+        void record(long start, boolean success, int attempt)
+        {
+            long elapsed = System.nanoTime() - start;
+            timeInTxNanos.add(elapsed);
+            maxTimeInTxNanos.accumulateAndGet(elapsed, Math::max);
+            maxAttempts.accumulateAndGet(attempt, Math::max);
+            if (success)
+            {
+                committed.increment();
+            }
+            else
+            {
+                failed.increment();
+            }
+        }
+
+        TxStats snapshot()
+        {
+            return new TxStats(committed.sum(), failed.sum(), retries.sum(),
+                    timeInTxNanos.sum(), maxTimeInTxNanos.get(), (int) maxAttempts.get());
+        }
+    }
+
+    /**
+     * Counters for every attempt run through the template.
+     * failedAttempts includes attempts that were retried afterwards.
+     */
+    public record TxStats(long committed, long failedAttempts, long retries, long timeInTxNanos,
+                          long maxTimeInTxNanos, int maxAttempts)
+    {
+        public double avgTimeInTxMillis()
+        {
+            long attempts = committed + failedAttempts;
+            return attempts == 0 ? 0 : timeInTxNanos / (double) attempts / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("committed=%d failedAttempts=%d retries=%d avgTimeInTx=%.3fms maxTimeInTx=%.3fms maxAttempts=%d",
+                    committed, failedAttempts, retries, avgTimeInTxMillis(), maxTimeInTxNanos / 1e6, maxAttempts);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * AccountTransferService.java
+ * Moves money between rows of accounts(id, name, balance) without deadlocks,
+ * in a single statement and a single round trip.
+ *
+ * Main.java runs two UPDATEs keyed by name. Alice -> Bob locks Alice then Bob,
+ * Bob -> Alice locks Bob then Alice; run both at once and each waits for the
+ * other until PostgreSQL kills one with a deadlock error.
+ *
+ * Here one statement does everything:
+ *   locked  SELECT ... ORDER BY id FOR UPDATE   both rows, always in id order
+ *   debit   UPDATE the sender, only if both rows exist and balance >= amount
+ *   credit  UPDATE the receiver, only if the debit happened
+ * Because every transfer takes its locks in the same (id) order, two
+ * transfers can wait for each other but never deadlock. The statement runs
+ * in autocommit mode, so it is its own transaction.
+ *
+ * Schema:
+ * CREATE TABLE accounts (
+ *     id SERIAL PRIMARY KEY,
+ *     name VARCHAR(100) UNIQUE NOT NULL,
+ *     balance NUMERIC(12, 2) NOT NULL CHECK (balance >= 0)
+ * );
+ */
+
+package db.accounts;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.concurrent.atomic.LongAdder;
+import javax.sql.DataSource;
+
+public class AccountTransferService
+{
+    public enum Result
+    {
+        TRANSFERRED,
+        INSUFFICIENT_FUNDS,
+        ACCOUNT_NOT_FOUND
+    }
+
+    static final String TRANSFER_BY_ID = transferSql("id");
+    static final String TRANSFER_BY_NAME = transferSql("name");
+
+    private final DataSource dataSource;
+    private final LongAdder transferred = new LongAdder();
+    private final LongAdder insufficientFunds = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+
+    public AccountTransferService(DataSource dataSource)
+    {
+        this.dataSource = dataSource;
+    }
+
+    public Result transfer(int fromId, int toId, BigDecimal amount) throws SQLException
+    {
+        if (fromId == toId)
+        {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+        return run(TRANSFER_BY_ID, fromId, toId, amount);
+    }
+
+    /** Same as transfer(), keyed by account name like Main.java. */
+    public Result transferByName(String from, String to, BigDecimal amount) throws SQLException
+    {
+        if (from.equals(to))
+        {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+        return run(TRANSFER_BY_NAME, from, to, amount);
+    }
+
+    public long transferredCount()
+    {
+        return transferred.sum();
+    }
+
+    public long insufficientFundsCount()
+    {
+        return insufficientFunds.sum();
+    }
+
+    public long notFoundCount()
+    {
+        return notFound.sum();
+    }
+
+    private Result run(String sql, Object from, Object to, BigDecimal amount) throws SQLException
+    {
+        if (amount.signum() <= 0)
+        {
+            throw new IllegalArgumentException("Amount must be positive: " + amount);
+        }
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql))
+        {
+            ps.setObject(1, from);
+            ps.setObject(2, to);
+            ps.setBigDecimal(3, amount);
+            ps.setObject(4, from);
+            ps.setBigDecimal(5, amount);
+            ps.setBigDecimal(6, amount);
+            ps.setObject(7, to);
+            try (ResultSet rs = ps.executeQuery())
+            {
+                rs.next();
+                int found = rs.getInt(1);
+                int credited = rs.getInt(3);
+                if (found < 2)
+                {
+                    notFound.increment();
+                    return Result.ACCOUNT_NOT_FOUND;
+                }
+                if (credited == 0)
+                {
+                    insufficientFunds.increment();
+                    return Result.INSUFFICIENT_FUNDS;
+                }
+                transferred.increment();
+                return Result.TRANSFERRED;
+            }
+        }
+    }
+
+    // Parameters: 1 from, 2 to, 3 amount, 4 from, 5 amount, 6 amount, 7 to
+    private static String transferSql(String key)
+    {
+        return "WITH locked AS MATERIALIZED ("
+                + " SELECT id, " + key + " AS k, balance FROM accounts"
+                + " WHERE " + key + " IN (?, ?) ORDER BY id FOR UPDATE),"
+                + " debit AS ("
+                + " UPDATE accounts a SET balance = a.balance - ? FROM locked l"
+                + " WHERE a.id = l.id AND l.k = ? AND l.balance >= ? AND (SELECT count(*) FROM locked) = 2"
+                + " RETURNING a.id),"
+                + " credit AS ("
+                + " UPDATE accounts a SET balance = a.balance + ? FROM locked l"
+                + " WHERE a.id = l.id AND l.k = ? AND EXISTS (SELECT 1 FROM debit)"
+                + " RETURNING a.id)"
+                + " SELECT (SELECT count(*) FROM locked), (SELECT count(*) FROM debit), (SELECT count(*) FROM credit)";
+    }
+}
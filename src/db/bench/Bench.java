@@ -0,0 +1,149 @@
+/**
+ * Bench.java
+ * Minimal benchmark runner: warm-up, then timed operations with per-operation latency.
+ *
+ * Each operation is timed with System.nanoTime(); the samples are sorted
+ * once at the end to get p50 / p99 / max, and the total time gives the
+ * throughput. runConcurrent() runs the same operation from several threads
+ * at once and merges their samples.
+ *
+ * Bench.iterations and Bench.warmup can be changed with
+ * -Dbench.iterations=... and -Dbench.warmup=...
+ */
+
+package db.bench;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public final class Bench
+{
+    public static final int ITERATIONS = Integer.getInteger("bench.iterations", 1000);
+    public static final int WARMUP = Integer.getInteger("bench.warmup", 200);
+
+    /** One benchmarked operation. */
+    @FunctionalInterface
+    public interface Op
+    {
+        void run() throws Exception;
+    }
+
+    private Bench()
+    {
+    }
+
+    public static Result run(String name, Op op) throws Exception
+    {
+        return run(name, WARMUP, ITERATIONS, 1, op);
+    }
+
+    /**
+     * @param rowsPerOp how many rows one operation handles, for rows/s (1 for plain queries)
+     */
+    public static Result run(String name, int warmup, int iterations, int rowsPerOp, Op op) throws Exception
+    {
+        for (int i = 0; i < warmup; i++)
+        {
+            op.run();
+        }
+        long[] samples = new long[iterations];
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+        {
+            long t0 = System.nanoTime();
+            op.run();
+            samples[i] = System.nanoTime() - t0;
+        }
+        return Result.of(name, samples, System.nanoTime() - start, rowsPerOp);
+    }
+
+    /** Runs op opsPerThread times on each of threads threads, all started together. */
+    public static Result runConcurrent(String name, ExecutorService executor, int threads, int opsPerThread, Op op)
+            throws Exception
+    {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<long[]>> futures = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++)
+        {
+            futures.add(executor.submit(() -> {
+                long[] samples = new long[opsPerThread];
+                ready.countDown();
+                go.await();
+                for (int i = 0; i < opsPerThread; i++)
+                {
+                    long t0 = System.nanoTime();
+                    op.run();
+                    samples[i] = System.nanoTime() - t0;
+                }
+                return samples;
+            }));
+        }
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+
+        long[] all = new long[threads * opsPerThread];
+        int n = 0;
+        for (Future<long[]> f : futures)
+        {
+            try
+            {
+                long[] samples = f.get();
+                System.arraycopy(samples, 0, all, n, samples.length);
+                n += samples.length;
+            }
+            catch (ExecutionException e)
+            {
+                throw e.getCause() instanceof Exception ex ? ex : e;
+            }
+        }
+        return Result.of(name, all, System.nanoTime() - start, 1);
+    }
+
+    /** Prints a header line matching Result.toString(). */
+    public static void printHeader(String title)
+    {
+        System.out.println();
+        System.out.println("== " + title + " ==");
+        System.out.printf("%-36s %12s %12s %10s %10s %10s%n", "benchmark", "ops/s", "rows/s", "p50 ms", "p99 ms", "max ms");
+    }
+
+    public record Result(String name, long ops, long elapsedNanos, int rowsPerOp, long p50Nanos, long p99Nanos, long maxNanos)
+    {
+        static Result of(String name, long[] samples, long elapsedNanos, int rowsPerOp)
+        {
+            long[] sorted = samples.clone();
+            Arrays.sort(sorted);
+            return new Result(name, sorted.length, elapsedNanos, rowsPerOp,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), sorted.length == 0 ? 0 : sorted[sorted.length - 1]);
+        }
+
+        private static long percentile(long[] sorted, double p)
+        {
+            if (sorted.length == 0)
+            {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+
+        public double opsPerSecond()
+        {
+            return elapsedNanos == 0 ? 0 : ops * 1e9 / elapsedNanos;
+        }
+
+        public double rowsPerSecond()
+        {
+            return opsPerSecond() * rowsPerOp;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%-36s %12.1f %12.0f %10.3f %10.3f %10.3f",
+                    name, opsPerSecond(), rowsPerSecond(), p50Nanos / 1e6, p99Nanos / 1e6, maxNanos / 1e6);
+        }
+    }
+}
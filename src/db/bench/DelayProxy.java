@@ -0,0 +1,145 @@
+/**
+ * DelayProxy.java
+ * Local TCP proxy that adds a fixed delay in each direction, to make a
+ * database on localhost behave like one across a slow network.
+ *
+ * Every chunk read from one side is held for oneWayDelayMs and then written
+ * to the other side, so one request/response costs about 2 x oneWayDelayMs
+ * extra. Chunks are timestamped and queued instead of slept on one by one,
+ * so back-to-back chunks are delayed together, as on a real link.
+ *
+ * try (DelayProxy proxy = new DelayProxy("localhost", 5432, 10))
+ * {
+ *     String url = proxy.rewrite("jdbc:postgresql://localhost:5432/school_db");
+ * }
+ */
+
+package db.bench;
+
+import java.io.*;
+import java.net.*;
+import java.util.concurrent.*;
+import java.util.regex.*;
+
+final class DelayProxy implements AutoCloseable
+{
+    private static final Pattern POSTGRES_URL = Pattern.compile("jdbc:postgresql://([^/:,]+)(?::(\\d+))?(/.*)");
+
+    private record Chunk(long dueNanos, byte[] data)
+    {
+    }
+
+    private final ServerSocket server;
+    private final String targetHost;
+    private final int targetPort;
+    private final long delayNanos;
+
+    DelayProxy(String targetHost, int targetPort, long oneWayDelayMs) throws IOException
+    {
+        this.targetHost = targetHost;
+        this.targetPort = targetPort;
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(oneWayDelayMs);
+        this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread.ofPlatform().daemon().name("delay-proxy").start(this::acceptLoop);
+    }
+
+    /** Starts a proxy in front of the host and port of a jdbc:postgresql:// URL. */
+    static DelayProxy forUrl(String url, long oneWayDelayMs) throws IOException
+    {
+        Matcher m = matcher(url);
+        return new DelayProxy(m.group(1), m.group(2) == null ? 5432 : Integer.parseInt(m.group(2)), oneWayDelayMs);
+    }
+
+    /** The same URL, pointing at this proxy instead of the database. */
+    String rewrite(String url)
+    {
+        return "jdbc:postgresql://127.0.0.1:" + server.getLocalPort() + matcher(url).group(3);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        server.close();
+    }
+
+    private static Matcher matcher(String url)
+    {
+        Matcher m = POSTGRES_URL.matcher(url);
+        if (!m.matches())
+        {
+            throw new IllegalArgumentException("Expected jdbc:postgresql://host[:port]/database, got " + url);
+        }
+        return m;
+    }
+
+    private void acceptLoop()
+    {
+        while (!server.isClosed())
+        {
+            try
+            {
+                Socket client = server.accept();
+                Socket target = new Socket(targetHost, targetPort);
+                client.setTcpNoDelay(true);
+                target.setTcpNoDelay(true);
+                forward(client, target);
+                forward(target, client);
+            }
+            catch (IOException e)
+            {
+                if (!server.isClosed())
+                {
+                    System.out.println("⚠️ Proxy connection failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /** One reader and one writer thread per direction; the queue between them holds the delay. */
+    private void forward(Socket from, Socket to)
+    {
+        BlockingQueue<Chunk> queue = new LinkedBlockingQueue<>();
+        Thread.ofVirtual().start(() -> {
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream in = from.getInputStream())
+            {
+                int n;
+                while ((n = in.read(buffer)) != -1)
+                {
+                    byte[] data = new byte[n];
+                    System.arraycopy(buffer, 0, data, 0, n);
+                    queue.add(new Chunk(System.nanoTime() + delayNanos, data));
+                }
+            }
+            catch (IOException ignored)
+            {
+                // Peer closed the connection
+            }
+            queue.add(new Chunk(0, null));
+        });
+        Thread.ofVirtual().start(() -> {
+            try (OutputStream out = to.getOutputStream())
+            {
+                while (true)
+                {
+                    Chunk chunk = queue.take();
+                    if (chunk.data() == null)
+                    {
+                        break;
+                    }
+                    long wait = chunk.dueNanos() - System.nanoTime();
+                    if (wait > 0)
+                    {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                    out.write(chunk.data());
+                    out.flush();
+                }
+            }
+            catch (IOException | InterruptedException ignored)
+            {
+                // Peer closed the connection
+            }
+        });
+    }
+}
@@ -0,0 +1,229 @@
+/**
+ * JdbcBenchmark.java
+ * Measures the JDBC access patterns the examples teach, against the database in config.properties:
+ *
+ * connect    new DriverManager connection per operation vs a pooled connection
+ * statement  Statement with concatenated SQL (jdbc.examples) vs PreparedStatement (statements.examples)
+ * insert     one executeUpdate per row vs StudentWriter batches vs StudentCopyLoader (COPY)
+ * fetch      SELECT * FROM students with the default fetch (whole result in memory) vs a cursor
+ *
+ * Run with: JdbcBenchmark [group ...]   (no arguments runs every group)
+ * Rows written by the benchmark use emails starting with "bench-" and are deleted at the end.
+ * Use a scratch database: the insert group adds thousands of rows while it runs.
+ */
+
+package db.bench;
+
+import db.Config;
+import db.Database;
+import db.students.Student;
+import db.students.StudentCopyLoader;
+import db.students.StudentReader;
+import db.students.StudentWriter;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.*;
+import javax.sql.DataSource;
+
+public class JdbcBenchmark
+{
+    private static final int SEED_ROWS = Integer.getInteger("bench.seedRows", 10_000);
+    private static final int INSERT_ROWS = Integer.getInteger("bench.insertRows", 1_000);
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    public static void main(String[] args)
+    {
+        Set<String> groups = args.length == 0
+                ? Set.of("connect", "statement", "insert", "fetch")
+                : Set.of(args);
+
+        try
+        {
+            DataSource pool = Database.getDataSource();
+            seed(pool);
+
+            if (groups.contains("connect"))
+            {
+                connect(pool);
+            }
+            if (groups.contains("statement"))
+            {
+                statement(pool);
+            }
+            if (groups.contains("insert"))
+            {
+                insert(pool);
+            }
+            if (groups.contains("fetch"))
+            {
+                fetch(pool);
+            }
+
+            cleanUp(pool);
+            System.out.println();
+            System.out.println("📊 Pool: " + Database.getPool().stats());
+        }
+        catch (Exception e)
+        {
+            System.out.println("❌ Benchmark failed: " + e.getMessage());
+        }
+    }
+
+    static void connect(DataSource pool) throws Exception
+    {
+        Config config = Config.get();
+        Bench.printHeader("connect: SELECT 1 on a new vs pooled connection");
+        System.out.println(Bench.run("DriverManager.getConnection", Bench.WARMUP / 10, Bench.ITERATIONS / 10, 1, () -> {
+            try (Connection conn = DriverManager.getConnection(config.url(), config.user(), config.password()))
+            {
+                selectOne(conn);
+            }
+        }));
+        System.out.println(Bench.run("ConnectionPool.getConnection", () -> {
+            try (Connection conn = pool.getConnection())
+            {
+                selectOne(conn);
+            }
+        }));
+    }
+
+    static void statement(DataSource pool) throws Exception
+    {
+        int maxId = maxId(pool);
+        Random random = new Random(42);
+        Bench.printHeader("statement: lookup by id");
+        try (Connection conn = pool.getConnection())
+        {
+            System.out.println(Bench.run("Statement (concatenated SQL)", () -> {
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT id, name, age, email FROM students WHERE id = " + (1 + random.nextInt(maxId))))
+                {
+                    rs.next();
+                }
+            }));
+            // Prepared on the same pooled handle as the Statement above, so both pay the same proxy overhead
+            try (PreparedStatement ps = conn.prepareStatement("SELECT id, name, age, email FROM students WHERE id = ?"))
+            {
+                System.out.println(Bench.run("PreparedStatement (reused)", () -> {
+                    ps.setInt(1, 1 + random.nextInt(maxId));
+                    try (ResultSet rs = ps.executeQuery())
+                    {
+                        rs.next();
+                    }
+                }));
+            }
+        }
+    }
+
+    static void insert(DataSource pool) throws Exception
+    {
+        int ops = Math.max(1, Bench.ITERATIONS / 100);
+        Bench.printHeader("insert: " + INSERT_ROWS + " rows per op");
+        System.out.println(Bench.run("executeUpdate per row", 1, ops, INSERT_ROWS, () -> {
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement ps = conn.prepareStatement("INSERT INTO students (name, age, email) VALUES (?, ?, ?)"))
+            {
+                Iterator<Student> it = students(INSERT_ROWS).iterator();
+                while (it.hasNext())
+                {
+                    Student s = it.next();
+                    ps.setString(1, s.name());
+                    ps.setInt(2, s.age());
+                    ps.setString(3, s.email());
+                    ps.executeUpdate();
+                }
+            }
+        }));
+        StudentWriter writer = new StudentWriter(pool);
+        System.out.println(Bench.run("StudentWriter batch=" + writer.batchSize(), 1, ops, INSERT_ROWS,
+                () -> writer.write(students(INSERT_ROWS))));
+        StudentCopyLoader copy = new StudentCopyLoader(pool);
+        System.out.println(Bench.run("StudentCopyLoader (COPY)", 1, ops, INSERT_ROWS,
+                () -> copy.load(students(INSERT_ROWS))));
+    }
+
+    static void fetch(DataSource pool) throws Exception
+    {
+        int ops = Math.max(1, Bench.ITERATIONS / 100);
+        int rows = count(pool);
+        Bench.printHeader("fetch: SELECT all " + rows + " students");
+        System.out.println(Bench.run("default fetch (buffered)", 1, ops, rows, () -> {
+            try (Connection conn = pool.getConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT id, name, age, email FROM students"))
+            {
+                while (rs.next())
+                {
+                    rs.getString(2);
+                }
+            }
+        }));
+        StudentReader reader = new StudentReader(pool);
+        System.out.println(Bench.run("cursor fetch (StudentReader)", 1, ops, rows,
+                () -> reader.forEach(s -> s.name())));
+    }
+
+    static Stream<Student> students(int rows)
+    {
+        long batch = SEQUENCE.incrementAndGet();
+        long run = ProcessHandle.current().pid();
+        return IntStream.range(0, rows).mapToObj(i -> Student.of(
+                "Bench " + i, 18 + i % 10, "bench-" + run + "-" + batch + "-" + i + "@example.com"));
+    }
+
+    private static void seed(DataSource pool) throws SQLException
+    {
+        seed(pool, SEED_ROWS);
+    }
+
+    /** Tops the students table up to at least rows rows with "bench-" students. */
+    static void seed(DataSource pool, int rows) throws SQLException
+    {
+        int missing = rows - count(pool);
+        if (missing > 0)
+        {
+            System.out.println("🌱 Seeding " + missing + " students");
+            new StudentCopyLoader(pool).load(students(missing));
+        }
+    }
+
+    static void cleanUp(DataSource pool) throws SQLException
+    {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement())
+        {
+            stmt.executeUpdate("DELETE FROM students WHERE email LIKE 'bench-%'");
+        }
+    }
+
+    private static void selectOne(Connection conn) throws SQLException
+    {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT 1"))
+        {
+            rs.next();
+        }
+    }
+
+    private static int count(DataSource pool) throws SQLException
+    {
+        return queryInt(pool, "SELECT count(*) FROM students");
+    }
+
+    private static int maxId(DataSource pool) throws SQLException
+    {
+        return Math.max(1, queryInt(pool, "SELECT coalesce(max(id), 1) FROM students"));
+    }
+
+    private static int queryInt(DataSource pool, String sql) throws SQLException
+    {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql))
+        {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * LogIngestBenchmark.java
+ * Loads a log file into the logs table with LogIngester using 1, 2, 4, ...
+ * workers and reports lines/s, the speed-up over one worker and the peak
+ * heap used.
+ *
+ * Without a file, a synthetic one of the given number of lines is written
+ * to a temp file first. Rows added by a run are deleted before the next.
+ * Run it with 1M and then 10M lines: lines/s stays level and the peak heap
+ * does not grow with the file, since the file is memory-mapped and streamed
+ * through one buffer per worker. Workers stop at the smaller of maxWorkers,
+ * the number of cores and db.pool.maxSize.
+ *
+ * After the last run it times the level report from log_counts against the
+ * same report as a GROUP BY over logs.
+ *
+ * Run with: LogIngestBenchmark [lines | file.log] [maxWorkers]
+ */
+
+package db.bench;
+
+import db.Config;
+import db.Database;
+import db.logs.IngestReport;
+import db.logs.LogCounts;
+import db.logs.LogIngester;
+import java.io.*;
+import java.lang.management.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.sql.DataSource;
+
+public class LogIngestBenchmark
+{
+    private static final String[] LEVELS = { "INFO", "INFO", "INFO", "DEBUG", "WARN", "ERROR" };
+    private static final String[] MESSAGES = {
+            "Request served in %d ms",
+            "Cache miss for key user:%d",
+            "Disk usage at %d%%",
+            "Connection refused by upstream after %d retries",
+            "Student %d enrolled\tin course"
+    };
+
+    public static void main(String[] args)
+    {
+        String arg = args.length > 0 ? args[0] : "1000000";
+        boolean synthetic = arg.chars().allMatch(Character::isDigit);
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxWorkers = Math.min(args.length > 1 ? Integer.parseInt(args[1]) : cores,
+                Math.min(cores, Config.get().poolMaxSize()));
+
+        try
+        {
+            Path file = synthetic ? generate(Integer.parseInt(arg)) : Path.of(arg);
+            DataSource pool = Database.getDataSource();
+            LogIngester.createTable(pool);
+            LogIngester ingester = new LogIngester(pool);
+            long lastId = lastId(pool);
+
+            double baseline = 0;
+            for (int workers = 1; ; workers = Math.min(workers * 2, maxWorkers))
+            {
+                System.gc();
+                resetPeakHeap();
+                IngestReport report = ingester.ingest(file, workers);
+                if (workers == 1)
+                {
+                    baseline = report.linesPerSecond();
+                }
+                System.out.printf("✅ %2d workers: %s, %.2fx, peak heap %.1f MB%n", workers, report,
+                        report.linesPerSecond() / baseline, peakHeap() / 1e6);
+                if (workers == maxWorkers)
+                {
+                    Bench.printHeader("level report");
+                    System.out.println(Bench.run("log_counts", 5, 50, 1, () -> LogCounts.report(pool)));
+                    System.out.println(Bench.run("GROUP BY logs", 1, 5, 1, () -> groupBy(pool)));
+                }
+                deleteAfter(pool, lastId);
+                if (workers == maxWorkers)
+                {
+                    break;
+                }
+            }
+
+            if (synthetic)
+            {
+                Files.delete(file);
+            }
+        }
+        catch (Exception e)
+        {
+            System.out.println("❌ Benchmark failed: " + e.getMessage());
+        }
+    }
+
+    private static long lastId(DataSource pool) throws SQLException
+    {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT coalesce(max(id), 0) FROM logs"))
+        {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static void groupBy(DataSource pool) throws SQLException
+    {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT level, count(*) FROM logs GROUP BY level"))
+        {
+            while (rs.next())
+            {
+                rs.getLong(2);
+            }
+        }
+    }
+
+    /** Deletes the rows of the last run and recounts log_counts without them. */
+    private static void deleteAfter(DataSource pool, long lastId) throws SQLException
+    {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement("DELETE FROM logs WHERE id > ?"))
+        {
+            ps.setLong(1, lastId);
+            ps.executeUpdate();
+        }
+        LogCounts.rebuild(pool);
+    }
+
+    private static Path generate(int lines) throws IOException
+    {
+        Path file = Files.createTempFile("bench-", ".log");
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss,SSS");
+        LocalDateTime time = LocalDateTime.now().minusDays(1);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long start = System.nanoTime();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), 1 << 16))
+        {
+            for (int i = 0; i < lines; i++)
+            {
+                time = time.plusNanos(random.nextInt(1_000_000, 50_000_000));
+                out.write(time.format(format));
+                out.write(" [" + LEVELS[random.nextInt(LEVELS.length)] + "] ");
+                out.write(String.format(MESSAGES[random.nextInt(MESSAGES.length)], random.nextInt(1000)));
+                out.write('\n');
+                if (i % 1000 == 999)
+                {
+                    out.write("\tat db.logs.LogIngester.ingest(LogIngester.java:42)\n");
+                }
+            }
+        }
+        System.out.printf("📝 Generated %d lines (%.1f MB) in %.1f s%n", lines, Files.size(file) / 1e6,
+                (System.nanoTime() - start) / 1e9);
+        return file;
+    }
+
+    private static void resetPeakHeap()
+    {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP)
+            {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeap()
+    {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP)
+            {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
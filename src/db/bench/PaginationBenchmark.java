@@ -0,0 +1,117 @@
+/**
+ * PaginationBenchmark.java
+ * Keyset pagination (StudentPager) vs OFFSET/LIMIT at increasing page depths.
+ *
+ * Both list students by age, oldest first, with id as the tie-breaker, and
+ * both can use the (coalesce(age, -1), id) index. OFFSET still has to step
+ * over every row before the page, so its cost grows with the page number;
+ * a keyset page starts right at its position and costs the same at any depth.
+ *
+ * Run with: PaginationBenchmark [rows] [pageSize]
+ * Missing rows are added as "bench-" students and deleted at the end.
+ */
+
+package db.bench;
+
+import db.Database;
+import db.students.StudentPager;
+import java.sql.*;
+import java.util.*;
+import javax.sql.DataSource;
+
+public class PaginationBenchmark
+{
+    private static final String OFFSET_PAGE = "SELECT id, name, age, email FROM students"
+            + " ORDER BY coalesce(age, -1) DESC, id DESC LIMIT ? OFFSET ?";
+
+    public static void main(String[] args)
+    {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int pageSize = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        try
+        {
+            DataSource pool = Database.getDataSource();
+            JdbcBenchmark.seed(pool, rows);
+            StudentPager.createIndexes(pool);
+            try (Connection conn = pool.getConnection();
+                 Statement stmt = conn.createStatement())
+            {
+                stmt.execute("ANALYZE students");
+            }
+
+            StudentPager pager = new StudentPager(pool);
+            Map<Integer, String> tokens = walk(pager, pageSize);
+
+            for (Map.Entry<Integer, String> depth : tokens.entrySet())
+            {
+                int page = depth.getKey();
+                String token = depth.getValue();
+                Bench.printHeader("page " + page + " (" + pageSize + " rows)");
+                System.out.println(Bench.run("OFFSET " + (long) (page - 1) * pageSize, 5, 50, pageSize,
+                        () -> offsetPage(pool, page, pageSize)));
+                System.out.println(Bench.run("keyset", 5, 50, pageSize, () -> {
+                    if (token == null)
+                    {
+                        pager.first(StudentPager.Sort.AGE_DESC, pageSize);
+                    }
+                    else
+                    {
+                        pager.next(token, pageSize);
+                    }
+                }));
+            }
+
+            JdbcBenchmark.cleanUp(pool);
+        }
+        catch (Exception e)
+        {
+            System.out.println("❌ Benchmark failed: " + e.getMessage());
+        }
+    }
+
+    /** Pages through the whole table once and keeps the token leading to pages 1, 10, 100, ... */
+    private static Map<Integer, String> walk(StudentPager pager, int pageSize) throws SQLException
+    {
+        Map<Integer, String> tokens = new TreeMap<>();
+        tokens.put(1, null);
+        long start = System.nanoTime();
+        StudentPager.Page page = pager.first(StudentPager.Sort.AGE_DESC, pageSize);
+        int number = 1;
+        int nextDepth = 10;
+        long seen = page.students().size();
+        while (page.hasNext())
+        {
+            number++;
+            if (number == nextDepth)
+            {
+                tokens.put(number, page.nextToken());
+                nextDepth *= 10;
+            }
+            page = pager.next(page.nextToken(), pageSize);
+            seen += page.students().size();
+        }
+        System.out.printf("📄 Listed %d students in %d pages with keyset pagination in %.1f ms%n",
+                seen, number, (System.nanoTime() - start) / 1e6);
+        return tokens;
+    }
+
+    private static int offsetPage(DataSource pool, int page, int pageSize) throws SQLException
+    {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(OFFSET_PAGE))
+        {
+            ps.setInt(1, pageSize);
+            ps.setLong(2, (long) (page - 1) * pageSize);
+            int count = 0;
+            try (ResultSet rs = ps.executeQuery())
+            {
+                while (rs.next())
+                {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * PipelineBenchmark.java
+ * Measures what round trips cost on a slow link, using the two-update
+ * transfer from Main.java.
+ *
+ * All connections go through a DelayProxy that adds oneWayDelayMs in each
+ * direction, so every round trip costs at least 2 x oneWayDelayMs:
+ *
+ *   sequential           update, update, COMMIT          3 round trips
+ *   pipelined            both updates together, COMMIT   2 round trips
+ *   pipelined autocommit both updates, implicit tx       1 round trip
+ *
+ * (The driver sends BEGIN together with the first statement, so it is never
+ * a round trip of its own.)
+ *
+ * Run with: PipelineBenchmark [oneWayDelayMs] [iterations]
+ */
+
+package db.bench;
+
+import db.Config;
+import db.Pipeline;
+import java.math.BigDecimal;
+import java.sql.*;
+
+public class PipelineBenchmark
+{
+    private static final String DEBIT = "UPDATE accounts SET balance = balance - ? WHERE name = ?";
+    private static final String CREDIT = "UPDATE accounts SET balance = balance + ? WHERE name = ?";
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    public static void main(String[] args)
+    {
+        long delayMs = args.length > 0 ? Long.parseLong(args[0]) : 5;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int warmup = Math.max(1, iterations / 10);
+
+        Config config = Config.get();
+        try (DelayProxy proxy = DelayProxy.forUrl(config.url(), delayMs);
+             Connection conn = DriverManager.getConnection(proxy.rewrite(config.url()), config.user(), config.password()))
+        {
+            setUp(conn);
+            Bench.printHeader("transfer with " + delayMs + " ms one-way delay (" + 2 * delayMs + " ms per round trip)");
+
+            System.out.println(Bench.run("sequential (3 round trips)", warmup, iterations, 1, () -> {
+                conn.setAutoCommit(false);
+                try (PreparedStatement debit = conn.prepareStatement(DEBIT);
+                     PreparedStatement credit = conn.prepareStatement(CREDIT))
+                {
+                    debit.setBigDecimal(1, AMOUNT);
+                    debit.setString(2, "pipeline-a");
+                    debit.executeUpdate();
+                    credit.setBigDecimal(1, AMOUNT);
+                    credit.setString(2, "pipeline-b");
+                    credit.executeUpdate();
+                }
+                conn.commit();
+            }));
+
+            System.out.println(Bench.run("pipelined (2 round trips)", warmup, iterations, 1, () -> {
+                conn.setAutoCommit(false);
+                transfer().execute(conn);
+                conn.commit();
+            }));
+
+            System.out.println(Bench.run("pipelined autocommit (1 round trip)", warmup, iterations, 1, () -> {
+                conn.setAutoCommit(true);
+                transfer().execute(conn);
+            }));
+        }
+        catch (Exception e)
+        {
+            System.out.println("❌ Benchmark failed: " + e.getMessage());
+        }
+    }
+
+    private static Pipeline transfer()
+    {
+        return new Pipeline()
+                .add(DEBIT, AMOUNT, "pipeline-a")
+                .add(CREDIT, AMOUNT, "pipeline-b");
+    }
+
+    private static void setUp(Connection conn) throws SQLException
+    {
+        try (Statement stmt = conn.createStatement())
+        {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS accounts ("
+                    + " id SERIAL PRIMARY KEY,"
+                    + " name VARCHAR(100) UNIQUE NOT NULL,"
+                    + " balance NUMERIC(12, 2) NOT NULL CHECK (balance >= 0))");
+            stmt.executeUpdate("INSERT INTO accounts (name, balance) VALUES ('pipeline-a', 1000000), ('pipeline-b', 0)"
+                    + " ON CONFLICT (name) DO UPDATE SET balance = EXCLUDED.balance");
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * PurchaseContention.java
+ * Flash sale on one product: many threads buy it at once until it is sold out.
+ *
+ * Runs the same sale three times, each on a fresh product:
+ *   read-check-update   SELECT stock, check in Java, UPDATE stock = (value read) - 1
+ *   conditional UPDATE  PurchaseService on the products row
+ *   sharded             PurchaseService after shard(id, shards)
+ * and reports purchases/s, latency and whether the stock adds up: units
+ * sold + units left must equal the starting stock. The first one oversells;
+ * the other two never do, and sharding spreads the row-lock wait.
+ *
+ * Run with: PurchaseContention [threads] [stock] [shards]
+ * Each thread tries 1.25 * stock / threads purchases, so every sale sells out.
+ */
+
+package db.bench;
+
+import db.Database;
+import db.store.PurchaseService;
+import java.sql.*;
+import java.util.concurrent.*;
+import javax.sql.DataSource;
+
+public class PurchaseContention
+{
+    public static void main(String[] args)
+    {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int stock = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int shards = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int perThread = (int) Math.ceil(stock * 1.25 / threads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            DataSource pool = Database.getDataSource();
+            PurchaseService.createTables(pool);
+            PurchaseService service = new PurchaseService(pool);
+            Bench.printHeader("flash sale: " + threads + " threads x " + perThread + " for " + stock + " units");
+
+            int naive = createProduct(pool, stock);
+            System.out.println(Bench.runConcurrent("read-check-update", executor, threads, perThread,
+                    () -> readCheckUpdate(pool, naive)));
+            int single = createProduct(pool, stock);
+            System.out.println(Bench.runConcurrent("conditional UPDATE", executor, threads, perThread,
+                    () -> service.purchase(single, 1)));
+            int sharded = createProduct(pool, stock);
+            service.shard(sharded, shards);
+            System.out.println(Bench.runConcurrent("sharded x " + shards, executor, threads, perThread,
+                    () -> service.purchase(sharded, 1)));
+
+            System.out.println();
+            check(pool, service, "read-check-update", naive, stock);
+            check(pool, service, "conditional UPDATE", single, stock);
+            check(pool, service, "sharded x " + shards, sharded, stock);
+
+            for (int id : new int[] { naive, single, sharded })
+            {
+                deleteProduct(pool, id);
+            }
+        }
+        catch (Exception e)
+        {
+            System.out.println("❌ Benchmark failed: " + e.getMessage());
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /** The racy version: another buyer can run between the SELECT and the UPDATE. */
+    private static void readCheckUpdate(DataSource pool, int productId) throws SQLException
+    {
+        try (Connection conn = pool.getConnection())
+        {
+            int stock;
+            try (PreparedStatement ps = conn.prepareStatement("SELECT stock FROM products WHERE id = ?"))
+            {
+                ps.setInt(1, productId);
+                try (ResultSet rs = ps.executeQuery())
+                {
+                    rs.next();
+                    stock = rs.getInt(1);
+                }
+            }
+            if (stock < 1)
+            {
+                return;
+            }
+            try (PreparedStatement ps = conn.prepareStatement("UPDATE products SET stock = ? WHERE id = ?"))
+            {
+                ps.setInt(1, stock - 1);
+                ps.setInt(2, productId);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO orders (product_id, quantity, total) SELECT id, 1, price FROM products WHERE id = ?"))
+            {
+                ps.setInt(1, productId);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private static void check(DataSource pool, PurchaseService service, String name, int productId, int stock)
+            throws SQLException
+    {
+        int sold;
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT coalesce(sum(quantity), 0) FROM orders WHERE product_id = ?"))
+        {
+            ps.setInt(1, productId);
+            try (ResultSet rs = ps.executeQuery())
+            {
+                rs.next();
+                sold = rs.getInt(1);
+            }
+        }
+        int left = service.stock(productId);
+        String line = String.format("%-20s sold %d, left %d of %d", name, sold, left, stock);
+        if (sold + left == stock)
+        {
+            System.out.println("✅ " + line);
+        }
+        else
+        {
+            System.out.println("❌ " + line + ": oversold by " + (sold + left - stock));
+        }
+    }
+
+    private static int createProduct(DataSource pool, int stock) throws SQLException
+    {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "INSERT INTO products (name, price, stock) VALUES ('bench-hot-sku', 9.99, ?) RETURNING id"))
+        {
+            ps.setInt(1, stock);
+            try (ResultSet rs = ps.executeQuery())
+            {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private static void deleteProduct(DataSource pool, int productId) throws SQLException
+    {
+        try (Connection conn = pool.getConnection())
+        {
+            for (String table : new String[] { "orders", "product_stock_shards" })
+            {
+                try (PreparedStatement ps = conn.prepareStatement("DELETE FROM " + table + " WHERE product_id = ?"))
+                {
+                    ps.setInt(1, productId);
+                    ps.executeUpdate();
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM products WHERE id = ?"))
+            {
+                ps.setInt(1, productId);
+                ps.executeUpdate();
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * RowMapperBenchmark.java
+ * Per-row cost of mapping students by column label vs with a RowMapper.
+ *
+ * mapping   the result is fetched once into a scrollable ResultSet and then
+ *           mapped again and again, so only the per-row mapping is timed:
+ *           rs.getInt("id") ... on every row vs Student.MAPPER (indexes
+ *           resolved once per ResultSet)
+ * query     the full round trip: SELECT * with label lookups (Example5 before)
+ *           vs the explicit column list with Student.MAPPER
+ *
+ * Run with: RowMapperBenchmark [rows]
+ * Missing rows are added as "bench-" students and deleted at the end.
+ */
+
+package db.bench;
+
+import db.Database;
+import db.RowMapper;
+import db.students.Student;
+import java.sql.*;
+import java.util.*;
+import javax.sql.DataSource;
+
+public class RowMapperBenchmark
+{
+    public static void main(String[] args)
+    {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        try
+        {
+            DataSource pool = Database.getDataSource();
+            JdbcBenchmark.seed(pool, rows);
+            String sql = Student.MAPPER.selectFrom("students") + " LIMIT " + rows;
+
+            try (Connection conn = pool.getConnection();
+                 Statement stmt = conn.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+                 ResultSet rs = stmt.executeQuery(sql))
+            {
+                rs.last();
+                int fetched = rs.getRow();
+                Bench.printHeader("mapping " + fetched + " rows already in memory");
+                report(Bench.run("getXxx(label) per row", 3, 20, fetched, () -> {
+                    rs.beforeFirst();
+                    byLabel(rs, new ArrayList<>(fetched));
+                }));
+                report(Bench.run("Student.MAPPER", 3, 20, fetched, () -> {
+                    rs.beforeFirst();
+                    byMapper(rs, new ArrayList<>(fetched));
+                }));
+            }
+
+            Bench.printHeader("query + mapping");
+            report(Bench.run("SELECT * + getXxx(label)", 2, 10, rows, () -> {
+                try (Connection conn = pool.getConnection();
+                     Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT * FROM students LIMIT " + rows))
+                {
+                    byLabel(rs, new ArrayList<>(rows));
+                }
+            }));
+            report(Bench.run("column list + Student.MAPPER", 2, 10, rows, () -> {
+                try (Connection conn = pool.getConnection();
+                     Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery(sql))
+                {
+                    byMapper(rs, new ArrayList<>(rows));
+                }
+            }));
+
+            JdbcBenchmark.cleanUp(pool);
+        }
+        catch (Exception e)
+        {
+            System.out.println("❌ Benchmark failed: " + e.getMessage());
+        }
+    }
+
+    private static void byLabel(ResultSet rs, List<Student> out) throws SQLException
+    {
+        while (rs.next())
+        {
+            out.add(new Student(rs.getInt("id"), rs.getString("name"), rs.getObject("age", Integer.class), rs.getString("email")));
+        }
+    }
+
+    private static void byMapper(ResultSet rs, List<Student> out) throws SQLException
+    {
+        RowMapper.Bound<Student> row = Student.MAPPER.bind(rs);
+        while (rs.next())
+        {
+            out.add(row.map());
+        }
+    }
+
+    private static void report(Bench.Result result)
+    {
+        System.out.println(result);
+        System.out.printf("%-36s %12.1f ns/row%n", "", 1e9 / result.rowsPerSecond());
+    }
+}
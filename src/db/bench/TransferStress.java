@@ -0,0 +1,118 @@
+/**
+ * TransferStress.java
+ * Multi-threaded stress test for AccountTransferService.
+ *
+ * Creates (or resets) stress accounts, then runs random transfers in both
+ * directions from many threads at once. Reports transfers/s and latency,
+ * and checks that no money was created or lost: the sum of all balances
+ * must be the same before and after.
+ *
+ * Run with: TransferStress [threads] [transfersPerThread] [accounts]
+ * Use few accounts (e.g. 10) for maximum lock contention.
+ */
+
+package db.bench;
+
+import db.Database;
+import db.accounts.AccountTransferService;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.concurrent.*;
+import javax.sql.DataSource;
+
+public class TransferStress
+{
+    private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000.00");
+
+    public static void main(String[] args)
+    {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int accounts = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            DataSource pool = Database.getDataSource();
+            int[] ids = setUp(pool, accounts);
+            BigDecimal before = total(pool);
+
+            AccountTransferService service = new AccountTransferService(pool);
+            Bench.printHeader("transfers: " + threads + " threads x " + perThread + " across " + accounts + " accounts");
+            Bench.Result result = Bench.runConcurrent("AccountTransferService.transfer", executor, threads, perThread, () -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int from = ids[random.nextInt(ids.length)];
+                int to = ids[random.nextInt(ids.length)];
+                while (to == from)
+                {
+                    to = ids[random.nextInt(ids.length)];
+                }
+                service.transfer(from, to, BigDecimal.valueOf(1 + random.nextInt(200)));
+            });
+            System.out.println(result);
+
+            BigDecimal after = total(pool);
+            System.out.println("✅ transferred=" + service.transferredCount()
+                    + " insufficientFunds=" + service.insufficientFundsCount()
+                    + " notFound=" + service.notFoundCount());
+            if (before.compareTo(after) == 0)
+            {
+                System.out.println("✅ Total balance conserved: " + after);
+            }
+            else
+            {
+                System.out.println("❌ Total balance changed: " + before + " -> " + after);
+            }
+        }
+        catch (Exception e)
+        {
+            System.out.println("❌ Stress test failed: " + e.getMessage());
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private static int[] setUp(DataSource pool, int accounts) throws SQLException
+    {
+        try (Connection conn = pool.getConnection())
+        {
+            try (Statement stmt = conn.createStatement())
+            {
+                stmt.executeUpdate("CREATE TABLE IF NOT EXISTS accounts ("
+                        + " id SERIAL PRIMARY KEY,"
+                        + " name VARCHAR(100) UNIQUE NOT NULL,"
+                        + " balance NUMERIC(12, 2) NOT NULL CHECK (balance >= 0))");
+            }
+            int[] ids = new int[accounts];
+            String upsert = "INSERT INTO accounts (name, balance) VALUES (?, ?)"
+                    + " ON CONFLICT (name) DO UPDATE SET balance = EXCLUDED.balance RETURNING id";
+            try (PreparedStatement ps = conn.prepareStatement(upsert))
+            {
+                for (int i = 0; i < accounts; i++)
+                {
+                    ps.setString(1, "stress-" + i);
+                    ps.setBigDecimal(2, OPENING_BALANCE);
+                    try (ResultSet rs = ps.executeQuery())
+                    {
+                        rs.next();
+                        ids[i] = rs.getInt(1);
+                    }
+                }
+            }
+            return ids;
+        }
+    }
+
+    private static BigDecimal total(DataSource pool) throws SQLException
+    {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT coalesce(sum(balance), 0) FROM accounts"))
+        {
+            rs.next();
+            return rs.getBigDecimal(1);
+        }
+    }
+}
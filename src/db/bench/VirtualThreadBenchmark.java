@@ -0,0 +1,102 @@
+/**
+ * VirtualThreadBenchmark.java
+ * Compares RequestExecutor on virtual threads with the same executor on a
+ * fixed pool of platform threads, at 1k to 10k requests submitted at once.
+ *
+ * Every request is a student lookup by id on a pooled connection. Latency is
+ * measured from submit() to completion, so it includes the time a request
+ * waits for a thread (platform pool) or for a connection permit (both).
+ *
+ * Run with: VirtualThreadBenchmark [platformThreads] [concurrency ...]
+ */
+
+package db.bench;
+
+import db.Config;
+import db.Database;
+import db.RequestExecutor;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.sql.DataSource;
+
+public class VirtualThreadBenchmark
+{
+    private static final String LOOKUP = "SELECT id, name, age, email FROM students WHERE id = ?";
+
+    public static void main(String[] args)
+    {
+        int platformThreads = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int[] levels = args.length > 1
+                ? Arrays.stream(args).skip(1).mapToInt(Integer::parseInt).toArray()
+                : new int[] { 1_000, 2_000, 5_000, 10_000 };
+
+        try
+        {
+            DataSource pool = Database.getDataSource();
+            int permits = Config.get().poolMaxSize();
+            int maxId = maxId(pool);
+
+            for (int requests : levels)
+            {
+                Bench.printHeader(requests + " concurrent lookups, " + permits + " connections");
+                try (RequestExecutor virtual = new RequestExecutor(permits))
+                {
+                    System.out.println(run("virtual threads", virtual, requests, pool, maxId));
+                }
+                try (RequestExecutor platform = new RequestExecutor(Executors.newFixedThreadPool(platformThreads), permits))
+                {
+                    System.out.println(run("platform pool (" + platformThreads + " threads)", platform, requests, pool, maxId));
+                }
+            }
+            System.out.println();
+            System.out.println("📊 Pool: " + Database.getPool().stats());
+        }
+        catch (Exception e)
+        {
+            System.out.println("❌ Benchmark failed: " + e.getMessage());
+        }
+    }
+
+    private static Bench.Result run(String name, RequestExecutor executor, int requests, DataSource pool, int maxId)
+            throws Exception
+    {
+        long[] samples = new long[requests];
+        List<CompletableFuture<?>> futures = new ArrayList<>(requests);
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++)
+        {
+            int slot = i;
+            int id = 1 + ThreadLocalRandom.current().nextInt(maxId);
+            long submitted = System.nanoTime();
+            futures.add(executor.submit(() -> lookup(pool, id))
+                    .whenComplete((r, e) -> samples[slot] = System.nanoTime() - submitted));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+        return Bench.Result.of(name, samples, System.nanoTime() - start, 1);
+    }
+
+    private static String lookup(DataSource pool, int id) throws SQLException
+    {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(LOOKUP))
+        {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery())
+            {
+                return rs.next() ? rs.getString(2) : null;
+            }
+        }
+    }
+
+    private static int maxId(DataSource pool) throws SQLException
+    {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT coalesce(max(id), 1) FROM students"))
+        {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
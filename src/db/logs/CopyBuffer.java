@@ -0,0 +1,164 @@
+/**
+ * CopyBuffer.java
+ * Fixed-size byte buffer in front of a COPY ... FROM STDIN.
+ *
+ * Rows are appended as bytes and handed to the driver whenever the buffer
+ * is full, so memory stays at one buffer no matter how much is copied, and
+ * a slow database simply makes writeToCopy() (and so the reader) wait.
+ */
+
+package db.logs;
+
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import org.postgresql.copy.CopyIn;
+
+final class CopyBuffer
+{
+    // U+FFFD REPLACEMENT CHARACTER in UTF-8
+    private static final byte[] REPLACEMENT = { (byte) 0xEF, (byte) 0xBF, (byte) 0xBD };
+
+    private final CopyIn copy;
+    private final byte[] buffer;
+    private int length;
+
+    CopyBuffer(CopyIn copy, int size)
+    {
+        this.copy = copy;
+        this.buffer = new byte[size];
+    }
+
+    void put(byte b) throws SQLException
+    {
+        if (length == buffer.length)
+        {
+            flush();
+        }
+        buffer[length++] = b;
+    }
+
+    void put(byte[] bytes) throws SQLException
+    {
+        for (byte b : bytes)
+        {
+            put(b);
+        }
+    }
+
+    /** Copies src[from, to) as is. */
+    void put(ByteBuffer src, int from, int to) throws SQLException
+    {
+        while (from < to)
+        {
+            if (length == buffer.length)
+            {
+                flush();
+            }
+            int n = Math.min(to - from, buffer.length - length);
+            src.get(from, buffer, length, n);
+            length += n;
+            from += n;
+        }
+    }
+
+    /**
+     * Copies src[from, to) escaped for COPY's text format; runs needing no
+     * escape are copied in bulk. NUL bytes and bytes that are not well-formed
+     * UTF-8 would make the server reject the whole COPY, so each is replaced
+     * by U+FFFD instead.
+     */
+    void putEscaped(ByteBuffer src, int from, int to) throws SQLException
+    {
+        int run = from;
+        int i = from;
+        while (i < to)
+        {
+            byte b = src.get(i);
+            int length = b >= 0 ? 1 : sequenceLength(src, i, to);
+            byte escape = switch (b)
+            {
+                case '\\' -> '\\';
+                case '\t' -> 't';
+                case '\r' -> 'r';
+                case '\n' -> 'n';
+                default -> 0;
+            };
+            if (length == 0 || b == 0)
+            {
+                put(src, run, i);
+                put(REPLACEMENT);
+                run = ++i;
+            }
+            else if (escape != 0)
+            {
+                put(src, run, i);
+                put((byte) '\\');
+                put(escape);
+                run = ++i;
+            }
+            else
+            {
+                i += length;
+            }
+        }
+        put(src, run, to);
+    }
+
+    /** Length of the well-formed UTF-8 sequence starting with the non-ASCII byte src[i]; 0 if it is not one. */
+    private static int sequenceLength(ByteBuffer src, int i, int to)
+    {
+        int b = src.get(i) & 0xFF;
+        int length;
+        int secondMin = 0x80;
+        int secondMax = 0xBF;
+        if (b >= 0xC2 && b <= 0xDF)
+        {
+            length = 2;
+        }
+        else if (b >= 0xE0 && b <= 0xEF)
+        {
+            length = 3;
+            // No overlong forms (E0) and no UTF-16 surrogates (ED)
+            secondMin = b == 0xE0 ? 0xA0 : 0x80;
+            secondMax = b == 0xED ? 0x9F : 0xBF;
+        }
+        else if (b >= 0xF0 && b <= 0xF4)
+        {
+            length = 4;
+            // No overlong forms (F0) and nothing above U+10FFFF (F4)
+            secondMin = b == 0xF0 ? 0x90 : 0x80;
+            secondMax = b == 0xF4 ? 0x8F : 0xBF;
+        }
+        else
+        {
+            return 0;
+        }
+        if (i + length > to)
+        {
+            return 0;
+        }
+        int second = src.get(i + 1) & 0xFF;
+        if (second < secondMin || second > secondMax)
+        {
+            return 0;
+        }
+        for (int k = 2; k < length; k++)
+        {
+            int next = src.get(i + k) & 0xFF;
+            if (next < 0x80 || next > 0xBF)
+            {
+                return 0;
+            }
+        }
+        return length;
+    }
+
+    void flush() throws SQLException
+    {
+        if (length > 0)
+        {
+            copy.writeToCopy(buffer, 0, length);
+            length = 0;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * IngestReport.java
+ * Result of a log ingestion: lines read, rows stored, lines skipped as not
+ * being log entries, bytes read, and how fast.
+ */
+
+package db.logs;
+
+import java.util.concurrent.TimeUnit;
+
+public record IngestReport(long lines, long rows, long skipped, long bytes, long elapsedNanos)
+{
+    public double elapsedSeconds()
+    {
+        return elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    public double linesPerSecond()
+    {
+        return elapsedNanos == 0 ? 0 : lines / elapsedSeconds();
+    }
+
+    public double megabytesPerSecond()
+    {
+        return elapsedNanos == 0 ? 0 : bytes / 1e6 / elapsedSeconds();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d lines (%d stored, %d skipped), %.1f MB in %.3f s (%,.0f lines/s, %.1f MB/s)",
+                lines, rows, skipped, bytes / 1e6, elapsedSeconds(), linesPerSecond(), megabytesPerSecond());
+    }
+}
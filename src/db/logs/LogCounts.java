@@ -0,0 +1,195 @@
+/**
+ * LogCounts.java
+ * Per-hour, per-level line counts kept next to the logs table, so the
+ * project 9 report ("count of INFO, WARNING, ERROR") never has to GROUP BY
+ * the logs themselves.
+ *
+ *   log_counts(bucket, level, count)   one row per hour and level
+ *
+ * LogIngester counts every row it COPYs into LongAdders here and adds the
+ * totals to log_counts on the connection it commits last, so the counts are
+ * committed only if all of the file's rows were. A report then sums at most one row
+ * per level and hour of the range asked for: its cost depends on the time
+ * span, not on how many lines were logged.
+ *
+ * Rows written to logs any other way are not counted; rebuild() recomputes
+ * log_counts from the logs table once (e.g. after a manual import).
+ *
+ * Map<LogLevel, Long> counts = LogCounts.report(dataSource);
+ */
+
+package db.logs;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.sql.DataSource;
+
+public final class LogCounts
+{
+    private static final String UPSERT = "INSERT INTO log_counts (bucket, level, count) VALUES (?, ?, ?)"
+            + " ON CONFLICT (bucket, level) DO UPDATE SET count = log_counts.count + EXCLUDED.count";
+    private static final String REPORT = "SELECT level, sum(count) FROM log_counts GROUP BY level";
+    private static final String REPORT_RANGE = "SELECT level, sum(count) FROM log_counts"
+            + " WHERE bucket >= ? AND bucket < ? GROUP BY level";
+
+    // yyyyMMddHH -> one adder per LogLevel ordinal
+    private final Map<Long, LongAdder[]> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * One worker's handle on the counts. It keeps the adders of the hour it
+     * saw last, so consecutive lines of the same hour (nearly all of them in
+     * a log file) are counted without a map lookup or an allocation.
+     */
+    final class Counter
+    {
+        private long hour = -1;
+        private LongAdder[] adders;
+
+        void add(long hour, LogLevel level)
+        {
+            if (hour != this.hour)
+            {
+                adders = buckets.computeIfAbsent(hour, h -> newAdders());
+                this.hour = hour;
+            }
+            adders[level.ordinal()].increment();
+        }
+    }
+
+    Counter counter()
+    {
+        return new Counter();
+    }
+
+    /** Adds the counts to log_counts over conn, in bucket order so concurrent imports lock rows alike. */
+    void flush(Connection conn) throws SQLException
+    {
+        LogLevel[] levels = LogLevel.values();
+        try (PreparedStatement ps = conn.prepareStatement(UPSERT))
+        {
+            for (Map.Entry<Long, LongAdder[]> bucket : new TreeMap<>(buckets).entrySet())
+            {
+                Timestamp start = Timestamp.valueOf(toDateTime(bucket.getKey()));
+                for (LogLevel level : levels)
+                {
+                    long count = bucket.getValue()[level.ordinal()].sum();
+                    if (count > 0)
+                    {
+                        ps.setTimestamp(1, start);
+                        ps.setString(2, level.name());
+                        ps.setLong(3, count);
+                        ps.addBatch();
+                    }
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    public static void createTable(DataSource dataSource) throws SQLException
+    {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement())
+        {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS log_counts ("
+                    + " bucket TIMESTAMP NOT NULL,"
+                    + " level VARCHAR(10) NOT NULL,"
+                    + " count BIGINT NOT NULL,"
+                    + " PRIMARY KEY (bucket, level))");
+        }
+    }
+
+    /** Lines per level over all time; levels without lines are 0. */
+    public static Map<LogLevel, Long> report(DataSource dataSource) throws SQLException
+    {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(REPORT))
+        {
+            return report(ps);
+        }
+    }
+
+    /** Lines per level logged in [from, to), counted by whole hours. */
+    public static Map<LogLevel, Long> report(DataSource dataSource, LocalDateTime from, LocalDateTime to) throws SQLException
+    {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(REPORT_RANGE))
+        {
+            ps.setTimestamp(1, Timestamp.valueOf(from));
+            ps.setTimestamp(2, Timestamp.valueOf(to));
+            return report(ps);
+        }
+    }
+
+    private static Map<LogLevel, Long> report(PreparedStatement ps) throws SQLException
+    {
+        Map<LogLevel, Long> counts = new EnumMap<>(LogLevel.class);
+        for (LogLevel level : LogLevel.values())
+        {
+            counts.put(level, 0L);
+        }
+        try (ResultSet rs = ps.executeQuery())
+        {
+            while (rs.next())
+            {
+                // rebuild() copies levels as they are in logs, so accept every spelling
+                byte[] name = rs.getString(1).getBytes(StandardCharsets.US_ASCII);
+                LogLevel level = LogLevel.match(ByteBuffer.wrap(name), 0, name.length);
+                if (level != null)
+                {
+                    counts.merge(level, rs.getLong(2), Long::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    /** Recomputes log_counts from the logs table, replacing what was there; run it while no import is running. */
+    public static void rebuild(DataSource dataSource) throws SQLException
+    {
+        try (Connection conn = dataSource.getConnection())
+        {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement())
+            {
+                stmt.executeUpdate("DELETE FROM log_counts");
+                stmt.executeUpdate("INSERT INTO log_counts (bucket, level, count)"
+                        + " SELECT date_trunc('hour', timestamp), level, count(*) FROM logs"
+                        + " GROUP BY 1, 2");
+                conn.commit();
+            }
+            catch (SQLException e)
+            {
+                conn.rollback();
+                throw e;
+            }
+            finally
+            {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private static LongAdder[] newAdders()
+    {
+        LongAdder[] adders = new LongAdder[LogLevel.values().length];
+        for (int i = 0; i < adders.length; i++)
+        {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /** The start of a yyyyMMddHH hour. */
+    static LocalDateTime toDateTime(long hour)
+    {
+        return LocalDateTime.of((int) (hour / 1_000_000), (int) (hour / 10_000 % 100),
+                (int) (hour / 100 % 100), (int) (hour % 100), 0);
+    }
+}
@@ -0,0 +1,487 @@
+/**
+ * LogIngester.java
+ * Streams a log file into logs(level, message, timestamp) with COPY
+ * (project 9, Log Management Tool, in src/projects/README.md).
+ *
+ * The file is memory-mapped chunkSize bytes at a time, so the operating
+ * system pages it in and out and none of it is copied onto the heap. Lines
+ * are parsed in place by LogLineParser and written in COPY's text format
+ * into one fixed CopyBuffer, which is sent whenever it fills. Heap use is
+ * therefore the same for a 1 MB and a 10 GB file: one copy buffer plus a
+ * few objects.
+ *
+ * Each chunk ends at its last newline; the next chunk starts right after it,
+ * so no line is ever split. Lines that are not log entries are counted as
+ * skipped.
+ *
+ * With a parallelism above 1 the file is cut into that many ranges, again
+ * at newlines, and a ForkJoinPool parses them concurrently. Each worker has
+ * its own connection and COPY, so parsing and sending scale together; rows
+ * of one range arrive in file order. All connections are borrowed before
+ * any work starts (parallelism must not exceed db.pool.maxSize) and are
+ * committed only after every range has been copied: a failure while copying
+ * rolls all of them back and leaves the logs table as it was. The commits
+ * themselves are separate transactions, one per connection, so a commit that
+ * fails after others succeeded leaves a partial import; ingest() then throws
+ * an SQLException saying how many ranges were committed.
+ *
+ * Rows are counted per hour and level while they are copied, and the counts
+ * are added to log_counts (see LogCounts) on the first connection, which
+ * commits last: after a partial import log_counts has none of the file and
+ * LogCounts.rebuild() brings it back in line with the table.
+ *
+ * withPartitions() is for a logs table partitioned by LogPartitions: before
+ * copying, the partitions from the first to the last entry of the file are
+ * created, so rows land in their own partition and not in logs_default.
+ *
+ * IngestReport report = new LogIngester(Database.getDataSource()).ingest(Path.of("app.log"), 8);
+ */
+
+package db.logs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.sql.DataSource;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+public class LogIngester
+{
+    static final String COPY_SQL = "COPY logs (level, message, timestamp) FROM STDIN";
+
+    private final DataSource dataSource;
+    private final int chunkSize;
+    private final int bufferSize;
+    private final LogPartitions partitions;
+
+    public LogIngester(DataSource dataSource)
+    {
+        this(dataSource, 64 * 1024 * 1024, 256 * 1024);
+    }
+
+    /**
+     * @param chunkSize bytes of the file mapped at once; must be longer than the longest line
+     * @param bufferSize bytes of COPY data collected before each send
+     */
+    public LogIngester(DataSource dataSource, int chunkSize, int bufferSize)
+    {
+        this(dataSource, chunkSize, bufferSize, null);
+    }
+
+    private LogIngester(DataSource dataSource, int chunkSize, int bufferSize, LogPartitions partitions)
+    {
+        this.dataSource = dataSource;
+        this.chunkSize = chunkSize;
+        this.bufferSize = bufferSize;
+        this.partitions = partitions;
+    }
+
+    /** Same settings, creating the partitions each file needs before it is copied. */
+    public LogIngester withPartitions(LogPartitions partitions)
+    {
+        return new LogIngester(dataSource, chunkSize, bufferSize, partitions);
+    }
+
+    public static void createTable(DataSource dataSource) throws SQLException
+    {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement())
+        {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS logs ("
+                    + " id BIGSERIAL PRIMARY KEY,"
+                    + " level VARCHAR(10) NOT NULL,"
+                    + " message TEXT NOT NULL,"
+                    + " timestamp TIMESTAMP NOT NULL)");
+        }
+        LogCounts.createTable(dataSource);
+    }
+
+    public IngestReport ingest(Path file) throws IOException, SQLException
+    {
+        return ingest(file, 1);
+    }
+
+    /** Loads the file with up to parallelism workers, each on its own connection. */
+    public IngestReport ingest(Path file, int parallelism) throws IOException, SQLException
+    {
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long[] bounds = split(channel, parallelism);
+            if (partitions != null)
+            {
+                createPartitions(channel);
+            }
+            List<Connection> connections = new ArrayList<>();
+            LogCounts counts = new LogCounts();
+            try
+            {
+                for (int i = 1; i < bounds.length; i++)
+                {
+                    Connection conn = dataSource.getConnection();
+                    connections.add(conn);
+                    conn.setAutoCommit(false);
+                }
+
+                long[] lines;
+                if (connections.size() == 1)
+                {
+                    lines = copyRange(connections.get(0), channel, bounds[0], bounds[1], counts.counter());
+                }
+                else
+                {
+                    ForkJoinPool pool = new ForkJoinPool(connections.size());
+                    try
+                    {
+                        lines = pool.invoke(new CopyTask(connections, counts, channel, bounds, 0, connections.size()));
+                    }
+                    catch (RuntimeException e)
+                    {
+                        throw rethrowCause(e);
+                    }
+                    finally
+                    {
+                        pool.shutdown();
+                    }
+                }
+
+                counts.flush(connections.get(0));
+                commitAll(connections);
+                return new IngestReport(lines[0], lines[1], lines[0] - lines[1], channel.size(),
+                        System.nanoTime() - start);
+            }
+            catch (IOException | SQLException | RuntimeException e)
+            {
+                for (Connection conn : connections)
+                {
+                    try
+                    {
+                        conn.rollback();
+                    }
+                    catch (SQLException suppressed)
+                    {
+                        e.addSuppressed(suppressed);
+                    }
+                }
+                throw e;
+            }
+            finally
+            {
+                for (Connection conn : connections)
+                {
+                    try
+                    {
+                        conn.setAutoCommit(true);
+                        conn.close();
+                    }
+                    catch (SQLException ignored)
+                    {
+                        // Closing is best effort; the pool discards broken connections
+                    }
+                }
+            }
+        }
+    }
+
+    /** Commits the connections last to first, so the first one, holding the counts, commits only if all others did. */
+    private static void commitAll(List<Connection> connections) throws SQLException
+    {
+        int committed = 0;
+        try
+        {
+            for (int i = connections.size() - 1; i >= 0; i--)
+            {
+                connections.get(i).commit();
+                committed++;
+            }
+        }
+        catch (SQLException e)
+        {
+            if (committed == 0)
+            {
+                throw e;
+            }
+            throw new SQLException("Partial import: " + committed + " of " + connections.size()
+                    + " ranges were committed before a commit failed, without their log_counts;"
+                    + " run LogCounts.rebuild() after loading the rest", e.getSQLState(), e);
+        }
+    }
+
+    /**
+     * Copies ranges [lo, hi) of bounds, halving until each task has one range
+     * and one connection. A task completes, normally or not, only after both
+     * of its halves have, so no COPY is still using a connection when
+     * pool.invoke() returns or throws.
+     */
+    @SuppressWarnings("serial") // ForkJoinTask is Serializable, but a task is never serialized
+    private final class CopyTask extends RecursiveTask<long[]>
+    {
+        private final List<Connection> connections;
+        private final LogCounts counts;
+        private final FileChannel channel;
+        private final long[] bounds;
+        private final int lo;
+        private final int hi;
+
+        CopyTask(List<Connection> connections, LogCounts counts, FileChannel channel, long[] bounds, int lo, int hi)
+        {
+            this.connections = connections;
+            this.counts = counts;
+            this.channel = channel;
+            this.bounds = bounds;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected long[] compute()
+        {
+            if (hi - lo == 1)
+            {
+                try
+                {
+                    return copyRange(connections.get(lo), channel, bounds[lo], bounds[lo + 1], counts.counter());
+                }
+                catch (IOException | SQLException e)
+                {
+                    throw new CompletionException(e);
+                }
+            }
+            int mid = (lo + hi) >>> 1;
+            CopyTask left = new CopyTask(connections, counts, channel, bounds, lo, mid);
+            left.fork();
+            long[] right;
+            try
+            {
+                right = new CopyTask(connections, counts, channel, bounds, mid, hi).compute();
+            }
+            catch (RuntimeException e)
+            {
+                // Wait for the left half too: the caller rolls back and closes every connection once this throws
+                left.quietlyJoin();
+                if (left.isCompletedAbnormally())
+                {
+                    e.addSuppressed(left.getException());
+                }
+                throw e;
+            }
+            long[] sum = left.join();
+            sum[0] += right[0];
+            sum[1] += right[1];
+            return sum;
+        }
+    }
+
+    /** Throws the IOException or SQLException a worker failed with; returns e if it was neither. */
+    private static RuntimeException rethrowCause(RuntimeException e) throws IOException, SQLException
+    {
+        for (Throwable cause = e; cause != null; cause = cause.getCause())
+        {
+            if (cause instanceof IOException io)
+            {
+                throw io;
+            }
+            if (cause instanceof SQLException sql)
+            {
+                throw sql;
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Creates the partitions from the first to the last entry of the file.
+     * Log files are in time order, so only the first and last 64 KB are read
+     * to find them.
+     */
+    private void createPartitions(FileChannel channel) throws IOException, SQLException
+    {
+        long size = channel.size();
+        int length = (int) Math.min(size, 64 * 1024);
+        long first = edgeHour(channel, 0, length, true);
+        long last = edgeHour(channel, size - length, length, false);
+        if (first >= 0 && last >= 0)
+        {
+            partitions.ensure(LogCounts.toDateTime(Math.min(first, last)).toLocalDate(),
+                    LogCounts.toDateTime(Math.max(first, last)).toLocalDate());
+        }
+    }
+
+    /** Hour of the first (or last) log entry in file bytes [position, position + length); -1 if none. */
+    private static long edgeHour(FileChannel channel, long position, int length, boolean first) throws IOException
+    {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        int n;
+        do
+        {
+            n = channel.read(buf, position + buf.position());
+        }
+        while (n > 0 && buf.hasRemaining());
+        LogLineParser parser = new LogLineParser();
+        long hour = -1;
+        int lineStart = 0;
+        while (lineStart < buf.position())
+        {
+            int lineEnd = lineStart;
+            while (lineEnd < buf.position() && buf.get(lineEnd) != '\n')
+            {
+                lineEnd++;
+            }
+            if (parser.parse(buf, lineStart, lineEnd))
+            {
+                hour = parser.hour(buf);
+                if (first)
+                {
+                    return hour;
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return hour;
+    }
+
+    /**
+     * Cuts the file into at most parts ranges of about equal size, each
+     * starting right after a newline. Returns the boundaries, first 0 and
+     * last the file size; empty ranges are dropped.
+     */
+    long[] split(FileChannel channel, int parts) throws IOException
+    {
+        long size = channel.size();
+        long[] bounds = new long[parts + 1];
+        int count = 1;
+        ByteBuffer scan = ByteBuffer.allocate(8192);
+        for (int i = 1; i < parts; i++)
+        {
+            long bound = Math.max(size * i / parts, bounds[count - 1]);
+            bound = afterNewline(channel, bound, size, scan);
+            if (bound > bounds[count - 1] && bound < size)
+            {
+                bounds[count++] = bound;
+            }
+        }
+        bounds[count++] = size;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    private long afterNewline(FileChannel channel, long position, long size, ByteBuffer scan) throws IOException
+    {
+        long start = position;
+        while (position < size)
+        {
+            if (position - start > chunkSize)
+            {
+                throw new IOException("Line at byte " + start + " is longer than the " + chunkSize + " byte chunk");
+            }
+            scan.clear();
+            int n = channel.read(scan, position);
+            for (int i = 0; i < n; i++)
+            {
+                if (scan.get(i) == '\n')
+                {
+                    return position + i + 1;
+                }
+            }
+            position += n;
+        }
+        return size;
+    }
+
+    /**
+     * COPYs the lines in file bytes [from, to) over conn, which must be in a
+     * transaction. from must be the start of a line and to the end of one
+     * (or of the file). Each row is counted in counter. Returns { lines, rows }.
+     */
+    long[] copyRange(Connection conn, FileChannel channel, long from, long to, LogCounts.Counter counter)
+            throws IOException, SQLException
+    {
+        CopyIn copy = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+        try
+        {
+            CopyBuffer out = new CopyBuffer(copy, bufferSize);
+            LogLineParser parser = new LogLineParser();
+            long lines = 0;
+            long rows = 0;
+            long position = from;
+            while (position < to)
+            {
+                long remaining = to - position;
+                int size = (int) Math.min(chunkSize, remaining);
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+
+                int end = size;
+                if (size < remaining)
+                {
+                    // Stop after the last complete line; the rest starts the next chunk
+                    end = lastNewline(chunk, size) + 1;
+                    if (end == 0)
+                    {
+                        throw new IOException("Line at byte " + position + " is longer than the " + chunkSize + " byte chunk");
+                    }
+                }
+
+                int lineStart = 0;
+                while (lineStart < end)
+                {
+                    int lineEnd = nextNewline(chunk, lineStart, end);
+                    if (lineEnd > lineStart)
+                    {
+                        lines++;
+                        if (parser.parse(chunk, lineStart, lineEnd))
+                        {
+                            parser.appendRow(chunk, out);
+                            counter.add(parser.hour(chunk), parser.level());
+                            rows++;
+                        }
+                    }
+                    lineStart = lineEnd + 1;
+                }
+                position += end;
+            }
+            out.flush();
+            copy.endCopy();
+            return new long[] { lines, rows };
+        }
+        finally
+        {
+            if (copy.isActive())
+            {
+                copy.cancelCopy();
+            }
+        }
+    }
+
+    private static int lastNewline(MappedByteBuffer chunk, int size)
+    {
+        for (int i = size - 1; i >= 0; i--)
+        {
+            if (chunk.get(i) == '\n')
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int nextNewline(MappedByteBuffer chunk, int from, int end)
+    {
+        for (int i = from; i < end; i++)
+        {
+            if (chunk.get(i) == '\n')
+            {
+                return i;
+            }
+        }
+        return end;
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * LogLevel.java
+ * Log levels as stored in logs.level, with the spellings they are recognized by
+ * (WARN and WARNING, SEVERE for ERROR, ...), matched directly on the raw bytes.
+ */
+
+package db.logs;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public enum LogLevel
+{
+    TRACE("TRACE", "FINEST", "FINER"),
+    DEBUG("DEBUG", "FINE"),
+    INFO("INFO"),
+    WARNING("WARNING", "WARN"),
+    ERROR("ERROR", "ERR", "SEVERE"),
+    FATAL("FATAL", "CRITICAL");
+
+    private static final LogLevel[] VALUES = values();
+
+    /** The value written to logs.level. */
+    final byte[] bytes;
+    private final byte[][] spellings;
+
+    LogLevel(String... spellings)
+    {
+        this.bytes = name().getBytes(StandardCharsets.US_ASCII);
+        this.spellings = new byte[spellings.length][];
+        for (int i = 0; i < spellings.length; i++)
+        {
+            this.spellings[i] = spellings[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    /** The level spelled by buf[from, to), ignoring ASCII case; null if none. */
+    static LogLevel match(ByteBuffer buf, int from, int to)
+    {
+        int length = to - from;
+        for (LogLevel level : VALUES)
+        {
+            for (byte[] spelling : level.spellings)
+            {
+                if (spelling.length == length && equalsIgnoreCase(buf, from, spelling))
+                {
+                    return level;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean equalsIgnoreCase(ByteBuffer buf, int from, byte[] upper)
+    {
+        for (int i = 0; i < upper.length; i++)
+        {
+            int b = buf.get(from + i);
+            if (b >= 'a' && b <= 'z')
+            {
+                b -= 'a' - 'A';
+            }
+            if (b != upper[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * LogLineParser.java
+ * Parses one log line in place, straight from the file's bytes.
+ *
+ * Accepted lines look like
+ *
+ *   2025-01-15 10:23:45 INFO Server started
+ *   2025-01-15T10:23:45.123Z [ERROR] Connection refused
+ *   2025-01-15 10:23:45,123 WARN: Disk 91% full
+ *
+ * i.e. an ISO date and time (optional fraction and zone), a level (optionally
+ * in brackets or followed by a colon) and the rest of the line as message.
+ *
+ * parse() only records where the fields are; appendRow() then copies the
+ * bytes into the COPY buffer. No String, no decoding and no allocation
+ * happen per line: the message goes to the database as the UTF-8 it was in
+ * the file, except that NUL bytes and invalid UTF-8 become U+FFFD (see
+ * CopyBuffer.putEscaped), so one bad line cannot fail the whole COPY.
+ */
+
+package db.logs;
+
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+
+final class LogLineParser
+{
+    // Positions of the last parsed line, reused for every line
+    private int timestampStart;
+    private int timestampEnd;
+    private int messageStart;
+    private int messageEnd;
+    private LogLevel level;
+
+    /** Parses buf[from, to) (without the newline); false if the line is not a log entry. */
+    boolean parse(ByteBuffer buf, int from, int to)
+    {
+        if (to > from && buf.get(to - 1) == '\r')
+        {
+            to--;
+        }
+        int p = parseTimestamp(buf, from, to);
+        if (p < 0 || p >= to || buf.get(p) != ' ')
+        {
+            return false;
+        }
+        timestampStart = from;
+        timestampEnd = p;
+
+        p = skipSpaces(buf, p, to);
+        boolean bracket = p < to && buf.get(p) == '[';
+        if (bracket)
+        {
+            p++;
+        }
+        int levelStart = p;
+        while (p < to && isLetter(buf.get(p)))
+        {
+            p++;
+        }
+        level = LogLevel.match(buf, levelStart, p);
+        if (level == null)
+        {
+            return false;
+        }
+        if (bracket)
+        {
+            if (p >= to || buf.get(p) != ']')
+            {
+                return false;
+            }
+            p++;
+        }
+        if (p < to && buf.get(p) == ':')
+        {
+            p++;
+        }
+        if (p < to && buf.get(p) != ' ')
+        {
+            return false;
+        }
+        messageStart = skipSpaces(buf, p, to);
+        messageEnd = to;
+        return true;
+    }
+
+    LogLevel level()
+    {
+        return level;
+    }
+
+    /** The hour of the parsed timestamp as yyyyMMddHH, read from its digits. */
+    long hour(ByteBuffer buf)
+    {
+        int p = timestampStart;
+        return digits(buf, p, 4) * 1_000_000L + digits(buf, p + 5, 2) * 10_000L
+                + digits(buf, p + 8, 2) * 100L + digits(buf, p + 11, 2);
+    }
+
+    /** Appends "level \t message \t timestamp \n" in COPY text format. */
+    void appendRow(ByteBuffer buf, CopyBuffer out) throws SQLException
+    {
+        out.put(level.bytes);
+        out.put((byte) '\t');
+        out.putEscaped(buf, messageStart, messageEnd);
+        out.put((byte) '\t');
+        for (int i = timestampStart; i < timestampEnd; i++)
+        {
+            byte b = buf.get(i);
+            // log4j writes 10:23:45,123; PostgreSQL wants a dot
+            out.put(b == ',' ? (byte) '.' : b);
+        }
+        out.put((byte) '\n');
+    }
+
+    /** yyyy-MM-dd[ T]HH:mm:ss[.fff][Z|+hh[:mm]]; returns the position after it, or -1. */
+    private static int parseTimestamp(ByteBuffer buf, int from, int to)
+    {
+        if (to - from < 19)
+        {
+            return -1;
+        }
+        if (!isDigits(buf, from, 4) || buf.get(from + 4) != '-' || !isDigits(buf, from + 5, 2)
+                || buf.get(from + 7) != '-' || !isDigits(buf, from + 8, 2))
+        {
+            return -1;
+        }
+        byte separator = buf.get(from + 10);
+        if ((separator != ' ' && separator != 'T') || !isDigits(buf, from + 11, 2) || buf.get(from + 13) != ':'
+                || !isDigits(buf, from + 14, 2) || buf.get(from + 16) != ':' || !isDigits(buf, from + 17, 2))
+        {
+            return -1;
+        }
+        int p = from + 19;
+        if (p < to && (buf.get(p) == '.' || buf.get(p) == ','))
+        {
+            p++;
+            int digitsStart = p;
+            while (p < to && isDigit(buf.get(p)))
+            {
+                p++;
+            }
+            if (p == digitsStart)
+            {
+                return -1;
+            }
+        }
+        if (p < to && buf.get(p) == 'Z')
+        {
+            p++;
+        }
+        else if (p < to && (buf.get(p) == '+' || buf.get(p) == '-'))
+        {
+            p++;
+            int digitsStart = p;
+            while (p < to && (isDigit(buf.get(p)) || buf.get(p) == ':'))
+            {
+                p++;
+            }
+            if (p == digitsStart)
+            {
+                return -1;
+            }
+        }
+        return p;
+    }
+
+    private static int skipSpaces(ByteBuffer buf, int p, int to)
+    {
+        while (p < to && (buf.get(p) == ' ' || buf.get(p) == '\t'))
+        {
+            p++;
+        }
+        return p;
+    }
+
+    private static int digits(ByteBuffer buf, int from, int count)
+    {
+        int value = 0;
+        for (int i = from; i < from + count; i++)
+        {
+            value = value * 10 + buf.get(i) - '0';
+        }
+        return value;
+    }
+
+    private static boolean isDigits(ByteBuffer buf, int from, int count)
+    {
+        for (int i = from; i < from + count; i++)
+        {
+            if (!isDigit(buf.get(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(byte b)
+    {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isLetter(byte b)
+    {
+        return (b >= 'A' && b <= 'Z') || (b >= 'a' && b <= 'z');
+    }
+}
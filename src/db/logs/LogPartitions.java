@@ -0,0 +1,338 @@
+/**
+ * LogPartitions.java
+ * Keeps the logs table partitioned by day or month and drops old partitions.
+ *
+ *   logs                  PARTITION BY RANGE (timestamp)
+ *   ├── logs_p20250115    one table per day (or logs_p202501 per month)
+ *   ├── logs_p20250116
+ *   └── logs_default      rows no partition covers
+ *
+ * COPY and INSERT go to logs and PostgreSQL routes each row to its
+ * partition. Queries with a timestamp range only read the partitions that
+ * overlap it (partition pruning), and retention is a DROP TABLE of whole
+ * partitions: no DELETE, no dead rows, no VACUUM afterwards.
+ *
+ * maintain() is meant to run once a day: it creates the current partition
+ * and partitionsAhead more, then drops every partition that ended
+ * retentionDays ago. ensure() creates the partitions for any other range,
+ * e.g. for an old log file; rows of that range already in logs_default
+ * are moved into the new partition. Creating and dropping partitions take
+ * a transaction-level advisory lock, so concurrent imports and maintain()
+ * runs do not trip over each other's CREATE or DROP.
+ *
+ * LogPartitions partitions = LogPartitions.fromConfig(Config.get(), dataSource);
+ * partitions.createTable();
+ * partitions.maintain(LocalDate.now());
+ */
+
+package db.logs;
+
+import db.Config;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.regex.*;
+import javax.sql.DataSource;
+
+public class LogPartitions
+{
+    public enum Interval
+    {
+        DAY(DateTimeFormatter.BASIC_ISO_DATE),
+        MONTH(DateTimeFormatter.ofPattern("yyyyMM"));
+
+        private final DateTimeFormatter suffix;
+
+        Interval(DateTimeFormatter suffix)
+        {
+            this.suffix = suffix;
+        }
+
+        /** First day of the partition holding date. */
+        LocalDate start(LocalDate date)
+        {
+            return this == DAY ? date : date.withDayOfMonth(1);
+        }
+
+        LocalDate next(LocalDate start)
+        {
+            return this == DAY ? start.plusDays(1) : start.plusMonths(1);
+        }
+    }
+
+    /** A partition of logs holding timestamps in [start, end). */
+    public record Partition(String name, LocalDate start, LocalDate end)
+    {
+    }
+
+    private static final Pattern NAME = Pattern.compile("logs_p(\\d{8}|\\d{6})");
+    // Serializes creating and dropping partitions across connections and processes
+    private static final String LOCK = "SELECT pg_advisory_xact_lock(hashtext('db.logs.LogPartitions'))";
+    private static final String LIST = "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid"
+            + " WHERE i.inhparent = 'logs'::regclass";
+
+    private final DataSource dataSource;
+    private final Interval interval;
+    private final int partitionsAhead;
+    private final int retentionDays;
+
+    /**
+     * @param partitionsAhead partitions maintain() creates after the current one
+     * @param retentionDays days after which maintain() drops a partition; 0 keeps all
+     */
+    public LogPartitions(DataSource dataSource, Interval interval, int partitionsAhead, int retentionDays)
+    {
+        this.dataSource = dataSource;
+        this.interval = interval;
+        this.partitionsAhead = partitionsAhead;
+        this.retentionDays = retentionDays;
+    }
+
+    /** Settings from db.logs.partitionInterval, db.logs.partitionsAhead and db.logs.retentionDays. */
+    public static LogPartitions fromConfig(Config config, DataSource dataSource)
+    {
+        return new LogPartitions(dataSource, Interval.valueOf(config.logsPartitionInterval().toUpperCase(Locale.ROOT)),
+                config.logsPartitionsAhead(), config.logsRetentionDays());
+    }
+
+    /**
+     * Creates logs as a partitioned table with its default partition, and
+     * log_counts. An existing plain logs table is left alone and reported:
+     * it has to be migrated by hand.
+     */
+    public void createTable() throws SQLException
+    {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement())
+        {
+            try (ResultSet rs = stmt.executeQuery("SELECT relkind FROM pg_class WHERE oid = to_regclass('logs')"))
+            {
+                if (rs.next() && !"p".equals(rs.getString(1)))
+                {
+                    throw new SQLException("logs exists and is not partitioned");
+                }
+            }
+            // The primary key of a partitioned table must contain the partition key
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS logs ("
+                    + " id BIGSERIAL,"
+                    + " level VARCHAR(10) NOT NULL,"
+                    + " message TEXT NOT NULL,"
+                    + " timestamp TIMESTAMP NOT NULL,"
+                    + " PRIMARY KEY (id, timestamp))"
+                    + " PARTITION BY RANGE (timestamp)");
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS logs_default PARTITION OF logs DEFAULT");
+        }
+        LogCounts.createTable(dataSource);
+    }
+
+    /** Creates the current partition and the ones ahead, then drops the expired ones. */
+    public void maintain(LocalDate today) throws SQLException
+    {
+        LocalDate last = interval.start(today);
+        for (int i = 0; i < partitionsAhead; i++)
+        {
+            last = interval.next(last);
+        }
+        ensure(today, last);
+        if (retentionDays > 0)
+        {
+            dropBefore(today.minusDays(retentionDays));
+        }
+    }
+
+    /** Creates the missing partitions covering the days from first to last; returns the ones created. */
+    public List<Partition> ensure(LocalDate first, LocalDate last) throws SQLException
+    {
+        Set<String> existing = new HashSet<>();
+        for (Partition partition : partitions())
+        {
+            existing.add(partition.name());
+        }
+
+        List<Partition> created = new ArrayList<>();
+        for (LocalDate start = interval.start(first); !start.isAfter(last); start = interval.next(start))
+        {
+            Partition partition = new Partition("logs_p" + interval.suffix.format(start), start, interval.next(start));
+            if (!existing.contains(partition.name()) && create(partition))
+            {
+                created.add(partition);
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Creates the partition as a plain table, moves its rows out of
+     * logs_default and attaches it, all in one transaction. Attaching
+     * directly would fail if logs_default held rows of the range. Returns
+     * false if another connection created it first.
+     */
+    private boolean create(Partition partition) throws SQLException
+    {
+        String range = "FROM ('" + partition.start() + "') TO ('" + partition.end() + "')";
+        try (Connection conn = dataSource.getConnection())
+        {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement())
+            {
+                if (!lockAndCheck(stmt, partition.name(), false))
+                {
+                    conn.commit();
+                    return false;
+                }
+                stmt.executeUpdate("CREATE TABLE " + partition.name() + " (LIKE logs INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+                stmt.executeUpdate("WITH moved AS (DELETE FROM logs_default"
+                        + " WHERE timestamp >= '" + partition.start() + "' AND timestamp < '" + partition.end() + "'"
+                        + " RETURNING *) INSERT INTO " + partition.name() + " SELECT * FROM moved");
+                stmt.executeUpdate("ALTER TABLE logs ATTACH PARTITION " + partition.name() + " FOR VALUES " + range);
+                conn.commit();
+                System.out.println("🗂️ Created partition " + partition.name());
+                return true;
+            }
+            catch (SQLException e)
+            {
+                conn.rollback();
+                throw e;
+            }
+            finally
+            {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Detaches and drops every partition that ends on or before cutoff,
+     * deletes older rows from logs_default and the matching log_counts, so
+     * reports keep agreeing with the table. The logs_default rows and their
+     * counts go in one transaction; counts of a kept partition that starts
+     * before cutoff stay. Returns the dropped partitions.
+     */
+    public List<Partition> dropBefore(LocalDate cutoff) throws SQLException
+    {
+        List<Partition> dropped = new ArrayList<>();
+        // Counts are kept from where the oldest remaining partition starts, if that is before cutoff
+        LocalDate countsBefore = cutoff;
+        for (Partition partition : partitions())
+        {
+            if (partition.end().isAfter(cutoff))
+            {
+                if (partition.start().isBefore(cutoff))
+                {
+                    countsBefore = partition.start();
+                }
+                break;
+            }
+            try (Connection conn = dataSource.getConnection())
+            {
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try (Statement stmt = conn.createStatement())
+                {
+                    // Do not queue behind long queries on logs; the next run retries
+                    stmt.execute("SET LOCAL lock_timeout = '5s'");
+                    if (!lockAndCheck(stmt, partition.name(), true))
+                    {
+                        // Dropped by a concurrent run
+                        conn.commit();
+                        continue;
+                    }
+                    stmt.executeUpdate("ALTER TABLE logs DETACH PARTITION " + partition.name());
+                    stmt.executeUpdate("DROP TABLE " + partition.name());
+                    stmt.executeUpdate("DELETE FROM log_counts WHERE bucket < '" + partition.end() + "'");
+                    conn.commit();
+                    dropped.add(partition);
+                    System.out.println("🗑️ Dropped partition " + partition.name());
+                }
+                catch (SQLException e)
+                {
+                    conn.rollback();
+                    throw e;
+                }
+                finally
+                {
+                    conn.setAutoCommit(autoCommit);
+                }
+            }
+        }
+
+        try (Connection conn = dataSource.getConnection())
+        {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement();
+                 PreparedStatement rows = conn.prepareStatement("DELETE FROM logs_default WHERE timestamp < ?");
+                 PreparedStatement counts = conn.prepareStatement("DELETE FROM log_counts WHERE bucket < ?"))
+            {
+                stmt.execute(LOCK);
+                rows.setTimestamp(1, Timestamp.valueOf(cutoff.atStartOfDay()));
+                rows.executeUpdate();
+                counts.setTimestamp(1, Timestamp.valueOf(countsBefore.atStartOfDay()));
+                counts.executeUpdate();
+                conn.commit();
+            }
+            catch (SQLException e)
+            {
+                conn.rollback();
+                throw e;
+            }
+            finally
+            {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        return dropped;
+    }
+
+    /** Takes the advisory lock for this transaction; true if the table's existence is as expected. */
+    private static boolean lockAndCheck(Statement stmt, String table, boolean exists) throws SQLException
+    {
+        stmt.execute(LOCK);
+        try (ResultSet rs = stmt.executeQuery("SELECT to_regclass('" + table + "') IS NOT NULL"))
+        {
+            rs.next();
+            return rs.getBoolean(1) == exists;
+        }
+    }
+
+    /** The logs_p* partitions, oldest first. */
+    public List<Partition> partitions() throws SQLException
+    {
+        List<Partition> partitions = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(LIST))
+        {
+            while (rs.next())
+            {
+                Partition partition = parse(rs.getString(1));
+                if (partition != null)
+                {
+                    partitions.add(partition);
+                }
+            }
+        }
+        partitions.sort(Comparator.comparing(Partition::start));
+        return partitions;
+    }
+
+    /** The partition a logs_pyyyyMMdd or logs_pyyyyMM name stands for; null for other tables. */
+    static Partition parse(String name)
+    {
+        Matcher m = NAME.matcher(name);
+        if (!m.matches())
+        {
+            return null;
+        }
+        String digits = m.group(1);
+        if (digits.length() == 8)
+        {
+            LocalDate start = LocalDate.parse(digits, Interval.DAY.suffix);
+            return new Partition(name, start, Interval.DAY.next(start));
+        }
+        LocalDate start = LocalDate.parse(digits + "01", Interval.DAY.suffix);
+        return new Partition(name, start, Interval.MONTH.next(start));
+    }
+}
@@ -0,0 +1,301 @@
+/**
+ * PurchaseService.java
+ * Buys a product of the Online Store Inventory (project 6) without ever
+ * overselling, in a single statement and a single round trip.
+ *
+ * Reading the stock, checking it in Java and writing stock - quantity back
+ * oversells: two buyers read 1, both write 0, both get an order. Locking
+ * the row first (SELECT ... FOR UPDATE) is correct but holds the lock for
+ * several round trips, so a flash sale queues on one row.
+ *
+ * Here one statement does everything:
+ *   row_taken    UPDATE products SET stock = stock - q WHERE id = ? AND stock >= q
+ *   shard_taken  the same on one shard row, for products split with shard()
+ *   placed       INSERT the order, only if one of the two took the stock
+ * The conditional UPDATE is checked again on the latest row version after
+ * waiting for a lock, so stock never goes below 0, and the lock is held
+ * only for the statement. The statement runs in autocommit mode, so it is
+ * its own transaction.
+ *
+ * For the hottest products even that one lock is the bottleneck.
+ * shard(productId, n) moves their stock into n rows of product_stock_shards;
+ * a purchase then takes a random shard that is not locked (SKIP LOCKED), so
+ * up to n buyers proceed at once. If all shards with enough stock are busy it
+ * tries again, this time waiting for one. A purchase must fit in one shard: with
+ * 2 + 1 left in two shards, buying 3 is out of stock. unshard() merges the
+ * shards back.
+ *
+ * Schema: see createTables().
+ */
+
+package db.store;
+
+import db.TransactionTemplate;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.concurrent.atomic.LongAdder;
+import javax.sql.DataSource;
+
+public class PurchaseService
+{
+    public enum Result
+    {
+        PURCHASED,
+        OUT_OF_STOCK,
+        PRODUCT_NOT_FOUND
+    }
+
+    /** Outcome of a purchase; orderId and total are set only when purchased. */
+    public record Purchase(Result result, int orderId, BigDecimal total)
+    {
+        public boolean purchased()
+        {
+            return result == Result.PURCHASED;
+        }
+    }
+
+    static final String PURCHASE = purchaseSql("FOR UPDATE SKIP LOCKED");
+    static final String PURCHASE_WAITING = purchaseSql("FOR UPDATE");
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final DataSource dataSource;
+    private final TransactionTemplate tx;
+    private final LongAdder purchased = new LongAdder();
+    private final LongAdder outOfStock = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+
+    public PurchaseService(DataSource dataSource)
+    {
+        this.dataSource = dataSource;
+        this.tx = new TransactionTemplate(dataSource);
+    }
+
+    public static void createTables(DataSource dataSource) throws SQLException
+    {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement())
+        {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS products ("
+                    + " id SERIAL PRIMARY KEY,"
+                    + " name VARCHAR(100) NOT NULL,"
+                    + " price NUMERIC(10, 2) NOT NULL,"
+                    + " stock INT NOT NULL CHECK (stock >= 0))");
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS orders ("
+                    + " id SERIAL PRIMARY KEY,"
+                    + " product_id INT NOT NULL REFERENCES products (id),"
+                    + " quantity INT NOT NULL CHECK (quantity > 0),"
+                    + " total NUMERIC(12, 2) NOT NULL)");
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS product_stock_shards ("
+                    + " product_id INT NOT NULL REFERENCES products (id),"
+                    + " shard INT NOT NULL,"
+                    + " stock INT NOT NULL CHECK (stock >= 0),"
+                    + " PRIMARY KEY (product_id, shard))");
+        }
+    }
+
+    public Purchase purchase(int productId, int quantity) throws SQLException
+    {
+        if (quantity <= 0)
+        {
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        }
+        try (Connection conn = dataSource.getConnection())
+        {
+            Purchase purchase = null;
+            for (int attempt = 0; purchase == null && attempt < MAX_ATTEMPTS; attempt++)
+            {
+                // Every shard with enough stock was locked: wait for one from the second attempt on
+                purchase = run(conn, attempt == 0 ? PURCHASE : PURCHASE_WAITING, productId, quantity);
+            }
+            if (purchase == null)
+            {
+                purchase = new Purchase(Result.OUT_OF_STOCK, 0, null);
+            }
+            switch (purchase.result())
+            {
+                case PURCHASED -> purchased.increment();
+                case OUT_OF_STOCK -> outOfStock.increment();
+                case PRODUCT_NOT_FOUND -> notFound.increment();
+            }
+            return purchase;
+        }
+    }
+
+    /** Units left: in products.stock, or in the shards of a sharded product. */
+    public int stock(int productId) throws SQLException
+    {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT p.stock + coalesce((SELECT sum(s.stock)"
+                     + " FROM product_stock_shards s WHERE s.product_id = p.id), 0) FROM products p WHERE p.id = ?"))
+        {
+            ps.setInt(1, productId);
+            try (ResultSet rs = ps.executeQuery())
+            {
+                if (!rs.next())
+                {
+                    throw new IllegalArgumentException("No product with id " + productId);
+                }
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Spreads the product's stock evenly over shards rows of
+     * product_stock_shards (re-spreading it if already sharded). Best run
+     * before the sale: purchases waiting on a shard that is replaced report
+     * out of stock.
+     */
+    public void shard(int productId, int shards) throws SQLException
+    {
+        if (shards < 1)
+        {
+            throw new IllegalArgumentException("shards must be at least 1");
+        }
+        tx.execute(conn -> {
+            int total = takeStock(conn, productId);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO product_stock_shards (product_id, shard, stock) VALUES (?, ?, ?)"))
+            {
+                for (int i = 0; i < shards; i++)
+                {
+                    ps.setInt(1, productId);
+                    ps.setInt(2, i);
+                    ps.setInt(3, total / shards + (i < total % shards ? 1 : 0));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    /** Moves the stock of all shards back into products.stock. */
+    public void unshard(int productId) throws SQLException
+    {
+        tx.execute(conn -> {
+            int total = takeStock(conn, productId);
+            try (PreparedStatement ps = conn.prepareStatement("UPDATE products SET stock = ? WHERE id = ?"))
+            {
+                ps.setInt(1, total);
+                ps.setInt(2, productId);
+                ps.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    public long purchasedCount()
+    {
+        return purchased.sum();
+    }
+
+    public long outOfStockCount()
+    {
+        return outOfStock.sum();
+    }
+
+    public long notFoundCount()
+    {
+        return notFound.sum();
+    }
+
+    /** One attempt; null if only shards locked by other buyers had enough stock. */
+    private static Purchase run(Connection conn, String sql, int productId, int quantity) throws SQLException
+    {
+        try (PreparedStatement ps = conn.prepareStatement(sql))
+        {
+            ps.setInt(1, productId);
+            ps.setInt(2, quantity);
+            ps.setInt(3, productId);
+            ps.setInt(4, quantity);
+            ps.setInt(5, productId);
+            ps.setInt(6, quantity);
+            ps.setInt(7, quantity);
+            ps.setInt(8, quantity);
+            ps.setInt(9, quantity);
+            ps.setInt(10, productId);
+            ps.setInt(11, quantity);
+            try (ResultSet rs = ps.executeQuery())
+            {
+                rs.next();
+                if (rs.getInt(1) == 0)
+                {
+                    return new Purchase(Result.PRODUCT_NOT_FOUND, 0, null);
+                }
+                int orderId = rs.getInt(2);
+                if (!rs.wasNull())
+                {
+                    return new Purchase(Result.PURCHASED, orderId, rs.getBigDecimal(3));
+                }
+                return rs.getBoolean(4) ? null : new Purchase(Result.OUT_OF_STOCK, 0, null);
+            }
+        }
+    }
+
+    // Parameters: 1 id, 2 quantity, 3 id, 4 quantity, 5 id, 6 quantity, 7 quantity, 8 quantity, 9 quantity,
+    // 10 id, 11 quantity
+    private static String purchaseSql(String lock)
+    {
+        return "WITH product AS (SELECT id, price FROM products WHERE id = ?),"
+                + " row_taken AS ("
+                + " UPDATE products SET stock = stock - ? WHERE id = ? AND stock >= ?"
+                + " RETURNING id),"
+                + " picked AS ("
+                + " SELECT product_id, shard FROM product_stock_shards"
+                + " WHERE product_id = ? AND stock >= ? AND NOT EXISTS (SELECT 1 FROM row_taken)"
+                + " ORDER BY random() LIMIT 1 " + lock + "),"
+                + " shard_taken AS ("
+                + " UPDATE product_stock_shards s SET stock = s.stock - ? FROM picked"
+                + " WHERE s.product_id = picked.product_id AND s.shard = picked.shard"
+                + " RETURNING s.product_id),"
+                + " placed AS ("
+                + " INSERT INTO orders (product_id, quantity, total)"
+                + " SELECT id, ?, price * ? FROM product"
+                + " WHERE EXISTS (SELECT 1 FROM row_taken) OR EXISTS (SELECT 1 FROM shard_taken)"
+                + " RETURNING id, total)"
+                + " SELECT (SELECT count(*) FROM product), (SELECT id FROM placed), (SELECT total FROM placed),"
+                // Some shard has enough stock but could not be taken: it was locked
+                + " EXISTS (SELECT 1 FROM product_stock_shards WHERE product_id = ? AND stock >= ?)";
+    }
+
+    /**
+     * Empties products.stock and all shards of the product and returns what
+     * they held. FOR NO KEY UPDATE still lets purchases insert orders
+     * referencing the product meanwhile.
+     */
+    private static int takeStock(Connection conn, int productId) throws SQLException
+    {
+        int total;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT stock FROM products WHERE id = ? FOR NO KEY UPDATE"))
+        {
+            ps.setInt(1, productId);
+            try (ResultSet rs = ps.executeQuery())
+            {
+                if (!rs.next())
+                {
+                    throw new IllegalArgumentException("No product with id " + productId);
+                }
+                total = rs.getInt(1);
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "DELETE FROM product_stock_shards WHERE product_id = ? RETURNING stock"))
+        {
+            ps.setInt(1, productId);
+            try (ResultSet rs = ps.executeQuery())
+            {
+                while (rs.next())
+                {
+                    total += rs.getInt(1);
+                }
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement("UPDATE products SET stock = 0 WHERE id = ?"))
+        {
+            ps.setInt(1, productId);
+            ps.executeUpdate();
+        }
+        return total;
+    }
+}
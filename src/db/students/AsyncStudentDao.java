@@ -0,0 +1,120 @@
+/**
+ * AsyncStudentDao.java
+ * Student CRUD that returns CompletableFutures instead of blocking the caller.
+ *
+ * findById, insert, updateEmail and deleteById run the same statements as
+ * crud.examples.Example1-4, but each call is handed to a RequestExecutor
+ * (one virtual thread per query, bounded by the pool size) and returns at
+ * once. Independent queries can then run at the same time.
+ *
+ * The student calls go through a StudentRepository: findById reads
+ * through its cache, and insert, updateEmail and deleteById keep the cache
+ * in sync. Pass the repository the rest of the application reads from;
+ * otherwise its cache keeps serving the old row.
+ *
+ * loadProfile() fetches the student, their enrollments and their courses
+ * (the JOIN in databases/examples/example7.sql) as three parallel queries,
+ * so it takes as long as the slowest of them instead of the sum of all three.
+ */
+
+package db.students;
+
+import db.RequestExecutor;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import javax.sql.DataSource;
+
+public class AsyncStudentDao
+{
+    static final String ENROLLMENTS_OF_STUDENT = Enrollment.MAPPER.selectFrom("enrollments") + " WHERE student_id = ?";
+    static final String COURSES_OF_STUDENT = "SELECT " + Course.MAPPER.columnList("c") + " FROM courses c"
+            + " JOIN enrollments e ON c.id = e.course_id WHERE e.student_id = ?";
+
+    /** A student with everything they are enrolled in. */
+    public record StudentProfile(Student student, List<Enrollment> enrollments, List<Course> courses)
+    {
+    }
+
+    private final DataSource dataSource;
+    private final RequestExecutor executor;
+    private final StudentRepository students;
+
+    /** Student calls go through a repository of its own; use the three-argument form to share one. */
+    public AsyncStudentDao(DataSource dataSource, RequestExecutor executor)
+    {
+        this(dataSource, executor, new StudentRepository(dataSource));
+    }
+
+    public AsyncStudentDao(DataSource dataSource, RequestExecutor executor, StudentRepository students)
+    {
+        this.dataSource = dataSource;
+        this.executor = executor;
+        this.students = students;
+    }
+
+    /** StudentRepository.findById on the executor, so a cached student costs no query. */
+    public CompletableFuture<Optional<Student>> findById(int id)
+    {
+        return executor.submit(() -> students.findById(id));
+    }
+
+    /** StudentRepository.insert on the executor: completes with the student carrying its new id. */
+    public CompletableFuture<Student> insert(Student student)
+    {
+        return executor.submit(() -> students.insert(student));
+    }
+
+    /** StudentRepository.updateEmail on the executor. */
+    public CompletableFuture<Integer> updateEmail(int id, String email)
+    {
+        return executor.submit(() -> students.updateEmail(id, email));
+    }
+
+    /** StudentRepository.deleteById on the executor. */
+    public CompletableFuture<Integer> deleteById(int id)
+    {
+        return executor.submit(() -> students.deleteById(id));
+    }
+
+    public CompletableFuture<List<Enrollment>> findEnrollments(int studentId)
+    {
+        return executor.submit(() -> {
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(ENROLLMENTS_OF_STUDENT))
+            {
+                ps.setInt(1, studentId);
+                try (ResultSet rs = ps.executeQuery())
+                {
+                    return Enrollment.MAPPER.list(rs);
+                }
+            }
+        });
+    }
+
+    public CompletableFuture<List<Course>> findCourses(int studentId)
+    {
+        return executor.submit(() -> {
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(COURSES_OF_STUDENT))
+            {
+                ps.setInt(1, studentId);
+                try (ResultSet rs = ps.executeQuery())
+                {
+                    return Course.MAPPER.list(rs);
+                }
+            }
+        });
+    }
+
+    /** Student, enrollments and courses fetched in parallel; empty if the student does not exist. */
+    public CompletableFuture<Optional<StudentProfile>> loadProfile(int studentId)
+    {
+        CompletableFuture<Optional<Student>> student = findById(studentId);
+        CompletableFuture<List<Enrollment>> enrollments = findEnrollments(studentId);
+        CompletableFuture<List<Course>> courses = findCourses(studentId);
+
+        return student.thenCombine(enrollments, (s, e) -> s.map(found -> new StudentProfile(found, e, List.of())))
+                .thenCombine(courses, (profile, c) -> profile.map(p -> new StudentProfile(p.student(), p.enrollments(), c)));
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * Course.java
+ * One row of the courses table (see databases/examples/example6.sql).
+ */
+
+package db.students;
+
+import db.RowMapper;
+
+public record Course(int id, String title, String teacher)
+{
+    public static final RowMapper<Course> MAPPER = RowMapper.of(
+            (rs, c) -> new Course(rs.getInt(c[0]), rs.getString(c[1]), rs.getString(c[2])),
+            "id", "title", "teacher");
+
+    @Override
+    public String toString()
+    {
+        return id + " | " + title + " | " + teacher;
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * Enrollment.java
+ * One row of the enrollments table, linking a student to a course
+ * (see the JOINs in databases/examples/example7.sql).
+ */
+
+package db.students;
+
+import db.RowMapper;
+
+public record Enrollment(int id, int studentId, int courseId)
+{
+    public static final RowMapper<Enrollment> MAPPER = RowMapper.of(
+            (rs, c) -> new Enrollment(rs.getInt(c[0]), rs.getInt(c[1]), rs.getInt(c[2])),
+            "id", "student_id", "course_id");
+
+    @Override
+    public String toString()
+    {
+        return id + " | student " + studentId + " | course " + courseId;
+    }
+}
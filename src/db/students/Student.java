@@ -0,0 +1,35 @@
+/**
+ * Student.java
+ * One row of the students table (see databases/examples/example1.sql).
+ * id is 0 for a student that has not been inserted yet; age is null where
+ * the column is NULL.
+ */
+
+package db.students;
+
+import db.RowMapper;
+
+public record Student(int id, String name, Integer age, String email)
+{
+    /** Maps id, name, age, email; a NULL age reads as null. */
+    public static final RowMapper<Student> MAPPER = RowMapper.of(
+            (rs, c) -> new Student(rs.getInt(c[0]), rs.getString(c[1]), rs.getObject(c[2], Integer.class), rs.getString(c[3])),
+            "id", "name", "age", "email");
+
+    /** A new student, before the database has assigned an id. */
+    public static Student of(String name, Integer age, String email)
+    {
+        return new Student(0, name, age, email);
+    }
+
+    public Student withId(int id)
+    {
+        return new Student(id, name, age, email);
+    }
+
+    @Override
+    public String toString()
+    {
+        return id + " | " + name + " | " + age + " | " + email;
+    }
+}
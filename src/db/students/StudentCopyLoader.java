@@ -0,0 +1,145 @@
+/**
+ * StudentCopyLoader.java
+ * Bulk-loads students with PostgreSQL's COPY protocol (org.postgresql.copy.CopyManager).
+ *
+ * COPY students (name, age, email) FROM STDIN skips per-statement parsing,
+ * planning and parameter binding entirely: rows are streamed as CSV in
+ * bufferSize chunks while they are read, so the dataset is never held in
+ * memory. When the connection is not a PostgreSQL connection, the loader
+ * falls back to the batched INSERT path of StudentWriter.
+ */
+
+package db.students;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.*;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+public class StudentCopyLoader
+{
+    static final String COPY_SQL = "COPY students (name, age, email) FROM STDIN WITH (FORMAT csv)";
+    static final String COPY_SQL_WITH_HEADER = "COPY students (name, age, email) FROM STDIN WITH (FORMAT csv, HEADER true)";
+
+    private final DataSource dataSource;
+    private final int bufferSize;
+
+    public StudentCopyLoader(DataSource dataSource)
+    {
+        this(dataSource, 64 * 1024);
+    }
+
+    public StudentCopyLoader(DataSource dataSource, int bufferSize)
+    {
+        this.dataSource = dataSource;
+        this.bufferSize = bufferSize;
+    }
+
+    /** True when COPY can be used on this connection. */
+    public static boolean isCopyAvailable(Connection conn)
+    {
+        try
+        {
+            return conn.isWrapperFor(PGConnection.class);
+        }
+        catch (SQLException e)
+        {
+            return false;
+        }
+    }
+
+    public WriteReport load(Stream<Student> students) throws SQLException
+    {
+        return load(students.iterator());
+    }
+
+    public WriteReport load(Iterator<Student> students) throws SQLException
+    {
+        long start = System.nanoTime();
+        try (Connection conn = dataSource.getConnection())
+        {
+            if (isCopyAvailable(conn))
+            {
+                return copy(conn, students, start);
+            }
+        }
+        // The COPY connection is closed first so the fallback never needs two at once
+        return new StudentWriter(dataSource).write(students);
+    }
+
+    /**
+     * Streams a CSV file (name,age,email) straight into COPY without parsing it in Java.
+     * Falls back to parsing it line by line into StudentWriter when COPY is unavailable.
+     */
+    public WriteReport load(File csv, boolean hasHeader) throws SQLException, IOException
+    {
+        long start = System.nanoTime();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(csv), StandardCharsets.UTF_8), bufferSize))
+        {
+            try (Connection conn = dataSource.getConnection())
+            {
+                if (isCopyAvailable(conn))
+                {
+                    long rows = copyManager(conn).copyIn(hasHeader ? COPY_SQL_WITH_HEADER : COPY_SQL, reader, bufferSize);
+                    return new WriteReport(rows, 1, System.nanoTime() - start);
+                }
+            }
+            return new StudentWriter(dataSource).write(StudentCsv.read(reader, hasHeader));
+        }
+    }
+
+    private WriteReport copy(Connection conn, Iterator<Student> students, long start) throws SQLException
+    {
+        long rows = copy(conn, COPY_SQL, students, bufferSize);
+        return new WriteReport(rows, 1, System.nanoTime() - start);
+    }
+
+    /** Streams students as CSV into a COPY ... FROM STDIN WITH (FORMAT csv) of (name, age, email). */
+    static long copy(Connection conn, String copySql, Iterator<Student> students, int bufferSize) throws SQLException
+    {
+        CopyIn copy = copyManager(conn).copyIn(copySql);
+        try
+        {
+            StringBuilder chunk = new StringBuilder(bufferSize + 256);
+            while (students.hasNext())
+            {
+                StudentCsv.append(chunk, students.next());
+                if (chunk.length() >= bufferSize)
+                {
+                    flush(copy, chunk);
+                }
+            }
+            flush(copy, chunk);
+            return copy.endCopy();
+        }
+        finally
+        {
+            if (copy.isActive())
+            {
+                copy.cancelCopy();
+            }
+        }
+    }
+
+    private static CopyManager copyManager(Connection conn) throws SQLException
+    {
+        return conn.unwrap(PGConnection.class).getCopyAPI();
+    }
+
+    private static void flush(CopyIn copy, StringBuilder chunk) throws SQLException
+    {
+        if (chunk.length() == 0)
+        {
+            return;
+        }
+        byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+        copy.writeToCopy(bytes, 0, bytes.length);
+        chunk.setLength(0);
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * StudentCsv.java
+ * Reads and writes students as CSV lines: name,age,email
+ * using the quoting rules PostgreSQL's COPY ... (FORMAT csv) expects.
+ * An empty unquoted field is NULL, also for age.
+ */
+
+package db.students;
+
+import java.io.*;
+import java.util.*;
+
+public final class StudentCsv
+{
+    private StudentCsv()
+    {
+    }
+
+    /** Appends one student as a CSV line, including the trailing newline. */
+    public static void append(StringBuilder out, Student s)
+    {
+        field(out, s.name());
+        out.append(',');
+        if (s.age() != null)
+        {
+            out.append(s.age().intValue());
+        }
+        out.append(',');
+        field(out, s.email());
+        out.append('\n');
+    }
+
+    /**
+     * Lazily parses CSV lines into students; one line is read per next() call,
+     * so the file is never loaded into memory. Skips the first line if hasHeader.
+     */
+    public static Iterator<Student> read(BufferedReader reader, boolean hasHeader)
+    {
+        return new Iterator<>()
+        {
+            private boolean headerSkipped = !hasHeader;
+            private String nextLine;
+            private int lineNumber;
+
+            @Override
+            public boolean hasNext()
+            {
+                if (nextLine != null)
+                {
+                    return true;
+                }
+                try
+                {
+                    if (!headerSkipped)
+                    {
+                        reader.readLine();
+                        lineNumber++;
+                        headerSkipped = true;
+                    }
+                    do
+                    {
+                        nextLine = reader.readLine();
+                        lineNumber++;
+                    }
+                    while (nextLine != null && nextLine.isBlank());
+                    return nextLine != null;
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public Student next()
+            {
+                if (!hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+                String line = nextLine;
+                nextLine = null;
+                List<String> fields = split(line);
+                if (fields.size() != 3)
+                {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": expected name,age,email but got: " + line);
+                }
+                String age = fields.get(1);
+                return Student.of(fields.get(0), age == null ? null : Integer.valueOf(age.trim()), fields.get(2));
+            }
+        };
+    }
+
+    private static void field(StringBuilder out, String value)
+    {
+        if (value == null)
+        {
+            return;
+        }
+        // Unquoted, COPY reads a value of exactly \. as its end-of-data marker
+        boolean quote = value.isEmpty() || value.equals("\\.");
+        for (int i = 0; i < value.length() && !quote; i++)
+        {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote)
+        {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if (c == '"')
+            {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    // Single-line CSV split; quoted fields may contain commas and doubled quotes
+    private static List<String> split(String line)
+    {
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        for (int i = 0; i < line.length(); i++)
+        {
+            char c = line.charAt(i);
+            if (quoted)
+            {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"')
+                {
+                    current.append('"');
+                    i++;
+                }
+                else if (c == '"')
+                {
+                    quoted = false;
+                }
+                else
+                {
+                    current.append(c);
+                }
+            }
+            else if (c == '"')
+            {
+                quoted = true;
+                wasQuoted = true;
+            }
+            else if (c == ',')
+            {
+                fields.add(current.length() == 0 && !wasQuoted ? null : current.toString());
+                current.setLength(0);
+                wasQuoted = false;
+            }
+            else
+            {
+                current.append(c);
+            }
+        }
+        fields.add(current.length() == 0 && !wasQuoted ? null : current.toString());
+        return fields;
+    }
+}
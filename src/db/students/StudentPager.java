@@ -0,0 +1,218 @@
+/**
+ * StudentPager.java
+ * Lists the students table one page at a time, with keyset (seek) pagination.
+ *
+ * OFFSET/LIMIT has to produce and throw away every row before the page, so
+ * page 10,000 costs 10,000 times as much as page 1, and rows inserted or
+ * deleted meanwhile shift the pages (rows are skipped or shown twice).
+ * Keyset pagination remembers the sort key and id of the last row shown and
+ * asks for the rows after it:
+ *
+ *   SELECT ... WHERE (coalesce(age, -1), id) < (?, ?) ORDER BY coalesce(age, -1) DESC, id DESC LIMIT ?
+ *
+ * With an index on (sort key, id) (see createIndexes()) every page is one
+ * short index range scan, whatever its depth, and concurrent inserts never
+ * move the rows of the next page.
+ *
+ * The position is handed to the caller as an opaque token: pass it back to
+ * get the next page. The token also records the sort order, so it cannot be
+ * used with another one.
+ *
+ * StudentPager pager = new StudentPager(Database.getDataSource());
+ * StudentPager.Page page = pager.first(StudentPager.Sort.AGE_DESC, 50);
+ * while (page.hasNext())
+ * {
+ *     page = pager.next(page.nextToken(), 50);
+ * }
+ */
+
+package db.students;
+
+import db.RowMapper;
+import java.io.*;
+import java.sql.*;
+import java.util.*;
+import javax.sql.DataSource;
+
+public class StudentPager
+{
+    /** Sort orders; each is a sort key with id as the tie-breaker. A null age sorts as -1. */
+    public enum Sort
+    {
+        ID("id", false, false),
+        AGE_ASC("coalesce(age, -1)", false, false),
+        AGE_DESC("coalesce(age, -1)", true, false),
+        NAME("name", false, true);
+
+        final String key;
+        final boolean descending;
+        final boolean textKey;
+
+        Sort(String key, boolean descending, boolean textKey)
+        {
+            this.key = key;
+            this.descending = descending;
+            this.textKey = textKey;
+        }
+    }
+
+    /** One page of students; nextToken is null on the last page. */
+    public record Page(List<Student> students, String nextToken)
+    {
+        public boolean hasNext()
+        {
+            return nextToken != null;
+        }
+    }
+
+    private static final String COLUMNS = Student.MAPPER.selectFrom("students");
+
+    private final DataSource dataSource;
+
+    public StudentPager(DataSource dataSource)
+    {
+        this.dataSource = dataSource;
+    }
+
+    /** Creates the (sort key, id) indexes that keep every page an index range scan. */
+    public static void createIndexes(DataSource dataSource) throws SQLException
+    {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement())
+        {
+            stmt.executeUpdate("CREATE INDEX IF NOT EXISTS students_age_id_idx ON students ((coalesce(age, -1)), id)");
+            stmt.executeUpdate("CREATE INDEX IF NOT EXISTS students_name_id_idx ON students (name, id)");
+        }
+    }
+
+    public Page first(Sort sort, int pageSize) throws SQLException
+    {
+        return fetch(sort, null, pageSize);
+    }
+
+    /** @throws IllegalArgumentException if the token was not produced by this class */
+    public Page next(String token, int pageSize) throws SQLException
+    {
+        Position after = decode(token);
+        return fetch(after.sort(), after, pageSize);
+    }
+
+    private Page fetch(Sort sort, Position after, int pageSize) throws SQLException
+    {
+        if (pageSize < 1)
+        {
+            throw new IllegalArgumentException("pageSize must be at least 1");
+        }
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql(sort, after != null)))
+        {
+            int index = 1;
+            if (after != null)
+            {
+                if (sort != Sort.ID)
+                {
+                    if (sort.textKey)
+                    {
+                        ps.setString(index++, after.textKey());
+                    }
+                    else
+                    {
+                        ps.setInt(index++, after.intKey());
+                    }
+                }
+                ps.setInt(index++, after.id());
+            }
+            // One extra row tells whether there is a next page
+            ps.setInt(index, pageSize + 1);
+
+            List<Student> students = new ArrayList<>(pageSize);
+            int lastIntKey = 0;
+            try (ResultSet rs = ps.executeQuery())
+            {
+                RowMapper.Bound<Student> row = Student.MAPPER.bind(rs);
+                while (students.size() < pageSize && rs.next())
+                {
+                    students.add(row.map());
+                    if (!sort.textKey && sort != Sort.ID)
+                    {
+                        lastIntKey = rs.getInt(5);
+                    }
+                }
+                if (!rs.next())
+                {
+                    return new Page(students, null);
+                }
+            }
+            Student last = students.get(pageSize - 1);
+            return new Page(students, encode(new Position(sort, lastIntKey, last.name(), last.id())));
+        }
+    }
+
+    static String sql(Sort sort, boolean seek)
+    {
+        String direction = sort.descending ? " DESC" : "";
+        String order;
+        String where;
+        if (sort == Sort.ID)
+        {
+            order = " ORDER BY id" + direction;
+            where = sort.descending ? " WHERE id < ?" : " WHERE id > ?";
+        }
+        else
+        {
+            order = " ORDER BY " + sort.key + direction + ", id" + direction;
+            where = " WHERE (" + sort.key + ", id) " + (sort.descending ? "<" : ">") + " (?, ?)";
+        }
+        // The sort key itself is read back for the token: a NULL age is -1 there but null in Student
+        String columns = sort.textKey || sort == Sort.ID ? COLUMNS : COLUMNS.replace(" FROM", ", " + sort.key + " FROM");
+        return columns + (seek ? where : "") + order + " LIMIT ?";
+    }
+
+    record Position(Sort sort, int intKey, String textKey, int id)
+    {
+    }
+
+    static String encode(Position position)
+    {
+        Sort sort = position.sort();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes))
+        {
+            out.writeByte(sort.ordinal());
+            if (sort.textKey)
+            {
+                out.writeUTF(position.textKey());
+            }
+            else if (sort != Sort.ID)
+            {
+                out.writeInt(position.intKey());
+            }
+            out.writeInt(position.id());
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    static Position decode(String token)
+    {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token))))
+        {
+            Sort sort = Sort.values()[in.readUnsignedByte()];
+            String textKey = sort.textKey ? in.readUTF() : null;
+            int intKey = !sort.textKey && sort != Sort.ID ? in.readInt() : 0;
+            int id = in.readInt();
+            if (in.available() > 0)
+            {
+                throw new IllegalArgumentException("Invalid page token");
+            }
+            return new Position(sort, intKey, textKey, id);
+        }
+        catch (IOException | IllegalArgumentException | ArrayIndexOutOfBoundsException e)
+        {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * StudentReader.java
+ * Reads the students table with flat memory use, however big the table is.
+ *
+ * By default the PostgreSQL driver buffers the whole result set in the JVM
+ * before rs.next() returns the first row. It only uses a server-side cursor
+ * (fetching fetchSize rows per round trip) when autocommit is off, the
+ * statement is forward-only and a fetch size is set, so that is what the
+ * reader does.
+ *
+ * stream() must be closed (try-with-resources) so that stopping early
+ * closes the cursor and gives the connection back.
+ * forEach() closes everything itself, even when the callback throws.
+ */
+
+package db.students;
+
+import db.Config;
+import db.RowMapper;
+import java.sql.*;
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+import javax.sql.DataSource;
+
+public class StudentReader
+{
+    static final String SELECT_ALL = Student.MAPPER.selectFrom("students");
+
+    private final DataSource dataSource;
+    private final int fetchSize;
+
+    public StudentReader(DataSource dataSource)
+    {
+        this(dataSource, Config.get().fetchSize());
+    }
+
+    public StudentReader(DataSource dataSource, int fetchSize)
+    {
+        if (fetchSize < 1)
+        {
+            throw new IllegalArgumentException("fetchSize must be at least 1");
+        }
+        this.dataSource = dataSource;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Streams every student. The stream holds a connection and an open
+     * cursor until it is closed:
+     *
+     * try (Stream<Student> students = reader.stream()) { ... }
+     */
+    public Stream<Student> stream() throws SQLException
+    {
+        Cursor cursor = new Cursor(dataSource.getConnection());
+        RowMapper.Bound<Student> row;
+        try
+        {
+            cursor.open(SELECT_ALL, fetchSize);
+            row = Student.MAPPER.bind(cursor.rs);
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            cursor.close();
+            throw e;
+        }
+
+        Spliterator<Student> rows = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL)
+        {
+            @Override
+            public boolean tryAdvance(Consumer<? super Student> action)
+            {
+                try
+                {
+                    if (!cursor.rs.next())
+                    {
+                        return false;
+                    }
+                    action.accept(row.map());
+                    return true;
+                }
+                catch (SQLException e)
+                {
+                    throw new IllegalStateException("Reading students failed: " + e.getMessage(), e);
+                }
+            }
+        };
+        return StreamSupport.stream(rows, false).onClose(cursor::close);
+    }
+
+    /** Calls action for every student, one row in memory at a time. */
+    public long forEach(Consumer<Student> action) throws SQLException
+    {
+        return forEachWhile(s -> {
+            action.accept(s);
+            return true;
+        });
+    }
+
+    /**
+     * Calls action for every student until it returns false.
+     * Returns how many students were visited.
+     */
+    public long forEachWhile(Predicate<Student> action) throws SQLException
+    {
+        long visited = 0;
+        try (Cursor cursor = new Cursor(dataSource.getConnection()))
+        {
+            cursor.open(SELECT_ALL, fetchSize);
+            RowMapper.Bound<Student> row = Student.MAPPER.bind(cursor.rs);
+            while (cursor.rs.next())
+            {
+                visited++;
+                if (!action.test(row.map()))
+                {
+                    break;
+                }
+            }
+        }
+        return visited;
+    }
+
+    /** Loads the whole table into a columnar StudentTable, reading through the same cursor. */
+    public StudentTable readTable() throws SQLException
+    {
+        try (Cursor cursor = new Cursor(dataSource.getConnection()))
+        {
+            cursor.open(SELECT_ALL, fetchSize);
+            return StudentTable.load(cursor.rs);
+        }
+    }
+
+    /** Connection + statement + result set, opened as a server-side cursor and closed as one. */
+    private static final class Cursor implements AutoCloseable
+    {
+        private final Connection conn;
+        private final boolean autoCommit;
+        private Statement stmt;
+        private ResultSet rs;
+        private boolean closed;
+
+        Cursor(Connection conn) throws SQLException
+        {
+            this.conn = conn;
+            this.autoCommit = conn.getAutoCommit();
+        }
+
+        void open(String sql, int fetchSize) throws SQLException
+        {
+            // A cursor only lives inside a transaction
+            conn.setAutoCommit(false);
+            stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(fetchSize);
+            rs = stmt.executeQuery(sql);
+        }
+
+        @Override
+        public void close()
+        {
+            if (closed)
+            {
+                return;
+            }
+            closed = true;
+            try (Connection c = conn)
+            {
+                if (rs != null)
+                {
+                    rs.close();
+                }
+                if (stmt != null)
+                {
+                    stmt.close();
+                }
+                // Read-only transaction: ending it with rollback releases the cursor without reading to the end
+                c.rollback();
+                c.setAutoCommit(autoCommit);
+            }
+            catch (SQLException e)
+            {
+                throw new IllegalStateException("Closing student cursor failed: " + e.getMessage(), e);
+            }
+        }
+    }
+}
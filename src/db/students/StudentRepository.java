@@ -0,0 +1,257 @@
+/**
+ * StudentRepository.java
+ * Student lookups by id and by email with a read-through cache in front of the database.
+ *
+ * Reads go to a BoundedCache first and only hit the database on a miss.
+ * Inserts get the new id back with RETURNING id in the same round trip
+ * (no follow-up SELECT by email) and put the stored student in the cache.
+ * Writes (the UPDATE from crud.examples.Example3 and the DELETE from
+ * crud.examples.Example4) go straight to the database and then invalidate
+ * every cache entry that could now be stale: the id, the old email and the
+ * new email.
+ *
+ * Cache size and TTL come from db.cache.maxSize and db.cache.ttlSeconds.
+ */
+
+package db.students;
+
+import db.BoundedCache;
+import db.Config;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+
+public class StudentRepository
+{
+    static final String SELECT_BY_ID = Student.MAPPER.selectFrom("students") + " WHERE id = ?";
+    static final String SELECT_BY_EMAIL = Student.MAPPER.selectFrom("students") + " WHERE email = ?";
+    // The self-join returns the email as it was before the update, so that cache entry can be dropped too
+    static final String UPDATE_EMAIL = "UPDATE students s SET email = ? FROM students old "
+            + "WHERE old.id = s.id AND s.id = ? RETURNING old.email";
+    static final String DELETE_BY_ID = "DELETE FROM students WHERE id = ? RETURNING email";
+    static final String INSERT = StudentWriter.insertSql(1) + " RETURNING id";
+
+    private final DataSource dataSource;
+    private final BoundedCache<Integer, Student> byId;
+    private final BoundedCache<String, Student> byEmail;
+
+    public StudentRepository(DataSource dataSource)
+    {
+        this(dataSource, Config.get().cacheMaxSize(), TimeUnit.SECONDS.toMillis(Config.get().cacheTtlSeconds()));
+    }
+
+    public StudentRepository(DataSource dataSource, int cacheSize, long ttlMillis)
+    {
+        this.dataSource = dataSource;
+        this.byId = new BoundedCache<>(cacheSize, ttlMillis);
+        this.byEmail = new BoundedCache<>(cacheSize, ttlMillis);
+    }
+
+    public Optional<Student> findById(int id) throws SQLException
+    {
+        long emailInvalidations = byEmail.invalidations();
+        return Optional.ofNullable(byId.get(id, key -> cacheEmail(selectOne(SELECT_BY_ID, key), emailInvalidations)));
+    }
+
+    public Optional<Student> findByEmail(String email) throws SQLException
+    {
+        long idInvalidations = byId.invalidations();
+        return Optional.ofNullable(byEmail.get(email, key -> cacheId(selectOne(SELECT_BY_EMAIL, key), idInvalidations)));
+    }
+
+    /** INSERT INTO students ... RETURNING id; returns the student with its new id, now also cached. */
+    public Student insert(Student student) throws SQLException
+    {
+        long idInvalidations = byId.invalidations();
+        long emailInvalidations = byEmail.invalidations();
+        Student stored;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(INSERT))
+        {
+            StudentWriter.bind(ps, new Student[] { student }, 1);
+            try (ResultSet rs = ps.executeQuery())
+            {
+                rs.next();
+                stored = student.withId(rs.getInt(1));
+            }
+        }
+        cacheId(cacheEmail(stored, emailInvalidations), idInvalidations);
+        return stored;
+    }
+
+    /**
+     * Inserts all students in one transaction, up to 128 rows per multi-row
+     * INSERT ... RETURNING, and returns the stored rows with their new ids.
+     * Each row comes back whole, so no id is paired with the wrong student
+     * even though SQL does not promise RETURNING follows the VALUES order
+     * (PostgreSQL does keep it in practice, so the list is usually in input
+     * order). Fewer rows back than sent fails the whole insert.
+     */
+    public List<Student> insertAll(List<Student> students) throws SQLException
+    {
+        long idInvalidations = byId.invalidations();
+        long emailInvalidations = byEmail.invalidations();
+        List<Student> stored = new ArrayList<>(students.size());
+        Student[] chunk = new Student[StudentWriter.MAX_ROWS_PER_STATEMENT];
+        try (Connection conn = dataSource.getConnection())
+        {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try
+            {
+                for (int from = 0; from < students.size(); from += chunk.length)
+                {
+                    int count = Math.min(chunk.length, students.size() - from);
+                    students.subList(from, from + count).toArray(chunk);
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            StudentWriter.insertSql(count) + " RETURNING " + Student.MAPPER.columnList()))
+                    {
+                        StudentWriter.bind(ps, chunk, count);
+                        try (ResultSet rs = ps.executeQuery())
+                        {
+                            List<Student> rows = Student.MAPPER.list(rs);
+                            if (rows.size() != count)
+                            {
+                                throw new SQLException("Inserted " + count + " students but " + rows.size() + " came back");
+                            }
+                            stored.addAll(rows);
+                        }
+                    }
+                }
+                conn.commit();
+            }
+            catch (SQLException e)
+            {
+                conn.rollback();
+                throw e;
+            }
+            finally
+            {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        for (Student s : stored)
+        {
+            cacheId(cacheEmail(s, emailInvalidations), idInvalidations);
+        }
+        return stored;
+    }
+
+    /** UPDATE students SET email = ? WHERE id = ?, then drops the stale cache entries. */
+    public int updateEmail(int id, String newEmail) throws SQLException
+    {
+        int rows = 0;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(UPDATE_EMAIL))
+        {
+            ps.setString(1, newEmail);
+            ps.setInt(2, id);
+            try (ResultSet rs = ps.executeQuery())
+            {
+                while (rs.next())
+                {
+                    rows++;
+                    invalidateEmail(rs.getString(1));
+                }
+            }
+        }
+        finally
+        {
+            // Invalidate even on failure: we cannot tell whether the update reached the database
+            byId.invalidate(id);
+            invalidateEmail(newEmail);
+        }
+        return rows;
+    }
+
+    /** DELETE FROM students WHERE id = ?, then drops the stale cache entries. */
+    public int deleteById(int id) throws SQLException
+    {
+        // The email the cache knows, for when the delete fails before RETURNING tells us
+        Student cached = byId.getIfPresent(id);
+        int rows = 0;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(DELETE_BY_ID))
+        {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery())
+            {
+                while (rs.next())
+                {
+                    rows++;
+                    invalidateEmail(rs.getString(1));
+                }
+            }
+        }
+        finally
+        {
+            // Invalidate even on failure: we cannot tell whether the delete reached the database
+            byId.invalidate(id);
+            if (cached != null)
+            {
+                invalidateEmail(cached.email());
+            }
+        }
+        return rows;
+    }
+
+    /** Drops everything, e.g. after a bulk import that bypassed the repository. */
+    public void invalidateAll()
+    {
+        byId.invalidateAll();
+        byEmail.invalidateAll();
+    }
+
+    public BoundedCache.CacheStats idCacheStats()
+    {
+        return byId.stats();
+    }
+
+    public BoundedCache.CacheStats emailCacheStats()
+    {
+        return byEmail.stats();
+    }
+
+    private <K> Student selectOne(String sql, K key) throws SQLException
+    {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql))
+        {
+            ps.setObject(1, key);
+            try (ResultSet rs = ps.executeQuery())
+            {
+                return rs.next() ? Student.MAPPER.bind(rs).map() : null;
+            }
+        }
+    }
+
+    // A row loaded by id can answer the next email lookup too, and the other way round. The
+    // invalidation count is read before the row was, so a write that raced with the read is not undone.
+
+    private Student cacheEmail(Student s, long invalidationsBefore)
+    {
+        if (s != null && s.email() != null)
+        {
+            byEmail.put(s.email(), s, invalidationsBefore);
+        }
+        return s;
+    }
+
+    private Student cacheId(Student s, long invalidationsBefore)
+    {
+        if (s != null)
+        {
+            byId.put(s.id(), s, invalidationsBefore);
+        }
+        return s;
+    }
+
+    private void invalidateEmail(String email)
+    {
+        if (email != null)
+        {
+            byEmail.invalidate(email);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/**
+ * StudentTable.java
+ * Column-oriented, in-memory copy of the students table for analytics.
+ *
+ * A List<Student> costs an object header, a record and two String objects
+ * (each with its own byte[]) per row. Here every column is one array:
+ * id and age live in int[], name and email are UTF-8 bytes packed into a
+ * single byte[] arena, addressed through an int[] of offsets.
+ *
+ * Rows are addressed by index (0 .. size() - 1). forEach(), filterAgeGreaterThan()
+ * and sortByAge() work on row indexes and primitive arrays, so they allocate
+ * per call, never per row. name(row), email(row) and get(row) build objects
+ * on demand for the rows you actually print.
+ */
+
+package db.students;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.*;
+import java.util.function.IntConsumer;
+
+public final class StudentTable
+{
+    private final int size;
+    private final int[] ids;
+    private final int[] ages;
+    // name of row i is arena[offsets[2i] .. offsets[2i+1]), email is arena[offsets[2i+1] .. offsets[2i+2])
+    private final int[] offsets;
+    private final byte[] arena;
+    private final BitSet nullEmails;
+
+    private StudentTable(int size, int[] ids, int[] ages, int[] offsets, byte[] arena, BitSet nullEmails)
+    {
+        this.size = size;
+        this.ids = ids;
+        this.ages = ages;
+        this.offsets = offsets;
+        this.arena = arena;
+        this.nullEmails = nullEmails;
+    }
+
+    /**
+     * Loads every row of a result set whose columns are id, name, age, email (in that order),
+     * e.g. SELECT id, name, age, email FROM students.
+     */
+    public static StudentTable load(ResultSet rs) throws SQLException
+    {
+        Builder b = new Builder();
+        while (rs.next())
+        {
+            b.add(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getString(4));
+        }
+        return b.build();
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public int id(int row)
+    {
+        return ids[check(row)];
+    }
+
+    public int age(int row)
+    {
+        return ages[check(row)];
+    }
+
+    public String name(int row)
+    {
+        check(row);
+        return decode(offsets[2 * row], offsets[2 * row + 1]);
+    }
+
+    public String email(int row)
+    {
+        check(row);
+        return nullEmails.get(row) ? null : decode(offsets[2 * row + 1], offsets[2 * row + 2]);
+    }
+
+    public Student get(int row)
+    {
+        return new Student(id(row), name(row), age(row), email(row));
+    }
+
+    /** Calls action with each row index, in load order. */
+    public void forEach(IntConsumer action)
+    {
+        for (int row = 0; row < size; row++)
+        {
+            action.accept(row);
+        }
+    }
+
+    /** Rows where age > minAge (SELECT * FROM students WHERE age > 21), in load order. */
+    public int[] filterAgeGreaterThan(int minAge)
+    {
+        int count = 0;
+        for (int row = 0; row < size; row++)
+        {
+            if (ages[row] > minAge)
+            {
+                count++;
+            }
+        }
+        int[] rows = new int[count];
+        int n = 0;
+        for (int row = 0; row < size && n < count; row++)
+        {
+            if (ages[row] > minAge)
+            {
+                rows[n++] = row;
+            }
+        }
+        return rows;
+    }
+
+    /** All rows sorted by age (ORDER BY age DESC when descending). */
+    public int[] sortByAge(boolean descending)
+    {
+        int[] all = new int[size];
+        for (int row = 0; row < size; row++)
+        {
+            all[row] = row;
+        }
+        return sortByAge(all, descending);
+    }
+
+    /**
+     * Sorts a selection of rows by age; ties keep their original order.
+     * Each row becomes one long (age in the high half, row index in the low half),
+     * so a primitive Arrays.sort does the work without boxing.
+     */
+    public int[] sortByAge(int[] rows, boolean descending)
+    {
+        long[] keys = new long[rows.length];
+        for (int i = 0; i < rows.length; i++)
+        {
+            int row = check(rows[i]);
+            // ~age flips the order of ints without the overflow -age has at Integer.MIN_VALUE
+            int key = descending ? ~ages[row] : ages[row];
+            keys[i] = ((long) key << 32) | (row & 0xFFFFFFFFL);
+        }
+        Arrays.sort(keys);
+        int[] sorted = new int[rows.length];
+        for (int i = 0; i < keys.length; i++)
+        {
+            sorted[i] = (int) keys[i];
+        }
+        return sorted;
+    }
+
+    /** Approximate heap used by the column arrays. */
+    public long memoryBytes()
+    {
+        return 4L * ids.length + 4L * ages.length + 4L * offsets.length + arena.length + nullEmails.size() / 8;
+    }
+
+    private int check(int row)
+    {
+        if (row < 0 || row >= size)
+        {
+            throw new IndexOutOfBoundsException("row " + row + " of " + size);
+        }
+        return row;
+    }
+
+    private String decode(int from, int to)
+    {
+        return new String(arena, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    /** Appends rows into growable arrays; build() trims them to size. */
+    public static final class Builder
+    {
+        private int size;
+        private int[] ids = new int[1024];
+        private int[] ages = new int[1024];
+        private int[] offsets = new int[2 * 1024 + 1];
+        private byte[] arena = new byte[32 * 1024];
+        private int arenaSize;
+        private final BitSet nullEmails = new BitSet();
+
+        private Builder()
+        {
+        }
+
+        public Builder add(int id, String name, int age, String email)
+        {
+            if (size == ids.length)
+            {
+                ids = Arrays.copyOf(ids, size * 2);
+                ages = Arrays.copyOf(ages, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 4 + 1);
+            }
+            ids[size] = id;
+            ages[size] = age;
+            offsets[2 * size] = arenaSize;
+            append(name);
+            offsets[2 * size + 1] = arenaSize;
+            if (email == null)
+            {
+                nullEmails.set(size);
+            }
+            else
+            {
+                append(email);
+            }
+            offsets[2 * size + 2] = arenaSize;
+            size++;
+            return this;
+        }
+
+        public StudentTable build()
+        {
+            return new StudentTable(size,
+                    Arrays.copyOf(ids, size),
+                    Arrays.copyOf(ages, size),
+                    Arrays.copyOf(offsets, 2 * size + 1),
+                    Arrays.copyOf(arena, arenaSize),
+                    (BitSet) nullEmails.clone());
+        }
+
+        private void append(String value)
+        {
+            if (value == null || value.isEmpty())
+            {
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (arenaSize + bytes.length > arena.length)
+            {
+                arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + bytes.length));
+            }
+            System.arraycopy(bytes, 0, arena, arenaSize, bytes.length);
+            arenaSize += bytes.length;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+/**
+ * StudentUpserter.java
+ * Bulk insert-or-update of students keyed on their UNIQUE email, safe to re-run.
+ *
+ * A plain INSERT of a student that already exists fails with a unique
+ * violation and aborts the whole transaction. Here every row goes through
+ *
+ *   INSERT ... ON CONFLICT (email) DO UPDATE SET name = EXCLUDED.name, age = EXCLUDED.age
+ *       WHERE (students.name, students.age) IS DISTINCT FROM (EXCLUDED.name, EXCLUDED.age)
+ *
+ * (or DO NOTHING in IGNORE mode). The WHERE clause leaves rows that did not
+ * change untouched: no new row version, no WAL, no bloat, which matters
+ * when a nightly re-sync sends mostly the same data again.
+ *
+ * RETURNING (xmax = 0) tells the two outcomes apart: a freshly inserted row
+ * has no xmax yet, an updated one carries the updating transaction. Rows
+ * that come back neither way were skipped.
+ *
+ * upsert() sends multi-row statements of up to 128 rows and commits every
+ * batchSize rows, like StudentWriter. upsertViaCopy() COPYs everything into
+ * a temporary staging table first and merges it with one statement, which
+ * is faster for large loads and all-or-nothing.
+ *
+ * Students with a NULL email never conflict and are always inserted. If the
+ * input repeats an email, the last occurrence wins. Upserts bypass
+ * StudentRepository, so call its invalidateAll() afterwards.
+ */
+
+package db.students;
+
+import db.Config;
+import java.sql.*;
+import java.util.*;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+
+public class StudentUpserter
+{
+    /** What to do with a student whose email already exists. */
+    public enum Mode
+    {
+        /** Overwrite name and age when they differ. */
+        UPDATE(" ON CONFLICT (email) DO UPDATE SET name = EXCLUDED.name, age = EXCLUDED.age"
+                + " WHERE (students.name, students.age) IS DISTINCT FROM (EXCLUDED.name, EXCLUDED.age)"),
+        /** Keep the existing row. */
+        IGNORE(" ON CONFLICT (email) DO NOTHING");
+
+        final String conflictClause;
+
+        Mode(String conflictClause)
+        {
+            this.conflictClause = conflictClause;
+        }
+    }
+
+    static final String STAGING_TABLE = "students_staging";
+
+    private final DataSource dataSource;
+    private final Mode mode;
+    private final int batchSize;
+
+    public StudentUpserter(DataSource dataSource, Mode mode)
+    {
+        this(dataSource, mode, Config.get().batchSize());
+    }
+
+    public StudentUpserter(DataSource dataSource, Mode mode, int batchSize)
+    {
+        if (batchSize < 1)
+        {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.dataSource = dataSource;
+        this.mode = mode;
+        this.batchSize = batchSize;
+    }
+
+    public UpsertReport upsert(Collection<Student> students) throws SQLException
+    {
+        return upsert(students.iterator());
+    }
+
+    public UpsertReport upsert(Stream<Student> students) throws SQLException
+    {
+        return upsert(students.iterator());
+    }
+
+    /**
+     * Upserts in multi-row statements, committing every batchSize rows.
+     * On failure the batches committed so far stay committed.
+     */
+    public UpsertReport upsert(Iterator<Student> students) throws SQLException
+    {
+        long start = System.nanoTime();
+        long[] counts = new long[3];
+        long committedRows = 0;
+
+        try (Connection conn = dataSource.getConnection())
+        {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try
+            {
+                Chunk chunk = new Chunk(Math.min(batchSize, StudentWriter.MAX_ROWS_PER_STATEMENT));
+                long uncommitted = 0;
+                while (students.hasNext())
+                {
+                    chunk.add(students.next());
+                    uncommitted++;
+                    if (chunk.isFull())
+                    {
+                        send(conn, chunk, counts);
+                    }
+                    if (uncommitted >= batchSize)
+                    {
+                        send(conn, chunk, counts);
+                        conn.commit();
+                        committedRows += uncommitted;
+                        uncommitted = 0;
+                    }
+                }
+                send(conn, chunk, counts);
+                conn.commit();
+            }
+            catch (SQLException e)
+            {
+                conn.rollback();
+                throw new SQLException("Upsert failed after " + committedRows + " committed rows: "
+                        + e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
+            }
+            finally
+            {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        return new UpsertReport(counts[0], counts[1], counts[2], System.nanoTime() - start);
+    }
+
+    public UpsertReport upsertViaCopy(Stream<Student> students) throws SQLException
+    {
+        return upsertViaCopy(students.iterator());
+    }
+
+    /**
+     * COPYs all students into a temporary staging table, then merges it into
+     * students with one INSERT ... SELECT ... ON CONFLICT, in one transaction.
+     * Falls back to upsert() when COPY is not available.
+     */
+    public UpsertReport upsertViaCopy(Iterator<Student> students) throws SQLException
+    {
+        long start = System.nanoTime();
+        try (Connection conn = dataSource.getConnection())
+        {
+            if (StudentCopyLoader.isCopyAvailable(conn))
+            {
+                return merge(conn, students, start);
+            }
+        }
+        // The COPY connection is closed first so the fallback never needs two at once
+        return upsert(students);
+    }
+
+    private UpsertReport merge(Connection conn, Iterator<Student> students, long start) throws SQLException
+    {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try
+        {
+            try (Statement stmt = conn.createStatement())
+            {
+                stmt.executeUpdate("CREATE TEMP TABLE " + STAGING_TABLE + " ON COMMIT DROP AS"
+                        + " SELECT name, age, email FROM students WITH NO DATA");
+            }
+            long staged = StudentCopyLoader.copy(conn,
+                    "COPY " + STAGING_TABLE + " (name, age, email) FROM STDIN WITH (FORMAT csv)", students, 64 * 1024);
+
+            long inserted;
+            long updated;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(mergeSql()))
+            {
+                rs.next();
+                inserted = rs.getLong(1);
+                updated = rs.getLong(2);
+            }
+            conn.commit();
+            return new UpsertReport(inserted, updated, staged - inserted - updated, System.nanoTime() - start);
+        }
+        catch (SQLException e)
+        {
+            conn.rollback();
+            throw e;
+        }
+        finally
+        {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    String mergeSql()
+    {
+        // Latest occurrence per email (ctid follows COPY order in the fresh temp table), plus all NULL emails
+        return "WITH source AS ("
+                + " (SELECT DISTINCT ON (email) name, age, email FROM " + STAGING_TABLE
+                + " WHERE email IS NOT NULL ORDER BY email, ctid DESC)"
+                + " UNION ALL"
+                + " (SELECT name, age, email FROM " + STAGING_TABLE + " WHERE email IS NULL)),"
+                + " merged AS ("
+                + "INSERT INTO students (name, age, email) SELECT name, age, email FROM source"
+                + mode.conflictClause
+                + " RETURNING (xmax = 0) AS inserted)"
+                + " SELECT count(*) FILTER (WHERE inserted), count(*) FILTER (WHERE NOT inserted) FROM merged";
+    }
+
+    private void send(Connection conn, Chunk chunk, long[] counts) throws SQLException
+    {
+        if (chunk.size == 0)
+        {
+            return;
+        }
+        String sql = StudentWriter.insertSql(chunk.size) + mode.conflictClause + " RETURNING (xmax = 0)";
+        long returned = 0;
+        try (PreparedStatement ps = conn.prepareStatement(sql))
+        {
+            StudentWriter.bind(ps, chunk.rows, chunk.size);
+            try (ResultSet rs = ps.executeQuery())
+            {
+                while (rs.next())
+                {
+                    returned++;
+                    counts[rs.getBoolean(1) ? 0 : 1]++;
+                }
+            }
+        }
+        counts[2] += chunk.size - returned + chunk.duplicates;
+        chunk.clear();
+    }
+
+    /**
+     * Rows for one statement. ON CONFLICT DO UPDATE cannot touch the same row
+     * twice in one statement, so a repeated email replaces the earlier row.
+     */
+    private static final class Chunk
+    {
+        final Student[] rows;
+        final Map<String, Integer> byEmail = new HashMap<>();
+        int size;
+        int duplicates;
+
+        Chunk(int capacity)
+        {
+            this.rows = new Student[capacity];
+        }
+
+        void add(Student student)
+        {
+            Integer existing = student.email() == null ? null : byEmail.get(student.email());
+            if (existing != null)
+            {
+                rows[existing] = student;
+                duplicates++;
+                return;
+            }
+            if (student.email() != null)
+            {
+                byEmail.put(student.email(), size);
+            }
+            rows[size++] = student;
+        }
+
+        boolean isFull()
+        {
+            return size == rows.length;
+        }
+
+        void clear()
+        {
+            Arrays.fill(rows, 0, size, null);
+            byEmail.clear();
+            size = 0;
+            duplicates = 0;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * StudentWriter.java
+ * Inserts many students with as few round trips as possible.
+ *
+ * Instead of one executeUpdate() per row, rows are rewritten into multi-row
+ * INSERT ... VALUES (?, ?, ?), (?, ?, ?), ... statements, queued with
+ * addBatch() and sent with executeBatch(). Every batchSize rows the
+ * transaction is committed, so a failure only loses the current batch and
+ * a huge import never holds one giant transaction open.
+ *
+ * A batch is a whole number of equally sized statements of at most 128
+ * rows each, so batchSize is rounded up to a multiple of the statement
+ * size: 500 is sent as 4 x 125 rows (exact), 300 as 3 x 100, 257 as
+ * 3 x 86 = 258. The overshoot is always less than one row per statement.
+ *
+ * Students are pulled from the Iterator one at a time, so a Stream that
+ * generates or reads rows lazily is never materialized in memory.
+ */
+
+package db.students;
+
+import db.Config;
+import java.sql.*;
+import java.util.*;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+
+public class StudentWriter
+{
+    // pgjdbc's own rewriter stops at 128 rows; past that, parse time outweighs the saved round trips
+    static final int MAX_ROWS_PER_STATEMENT = 128;
+
+    private final DataSource dataSource;
+    private final int batchSize;
+    private final int rowsPerStatement;
+
+    public StudentWriter(DataSource dataSource)
+    {
+        this(dataSource, Config.get().batchSize());
+    }
+
+    public StudentWriter(DataSource dataSource, int batchSize)
+    {
+        if (batchSize < 1)
+        {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.dataSource = dataSource;
+        this.batchSize = batchSize;
+        // Spread the batch evenly instead of 128 + 128 + ... + remainder, which would overshoot by up to 127 rows
+        int statements = (batchSize + MAX_ROWS_PER_STATEMENT - 1) / MAX_ROWS_PER_STATEMENT;
+        this.rowsPerStatement = (batchSize + statements - 1) / statements;
+    }
+
+    public int batchSize()
+    {
+        return batchSize;
+    }
+
+    public WriteReport write(Collection<Student> students) throws SQLException
+    {
+        return write(students.iterator());
+    }
+
+    public WriteReport write(Stream<Student> students) throws SQLException
+    {
+        return write(students.iterator());
+    }
+
+    /**
+     * Inserts every student the iterator returns.
+     * On failure the batches committed so far stay committed; the exception
+     * message says how many rows that was.
+     */
+    public WriteReport write(Iterator<Student> students) throws SQLException
+    {
+        long start = System.nanoTime();
+        long committedRows = 0;
+        int batches = 0;
+
+        try (Connection conn = dataSource.getConnection())
+        {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement chunk = conn.prepareStatement(insertSql(rowsPerStatement)))
+            {
+                Student[] buffer = new Student[rowsPerStatement];
+                int buffered = 0;
+                int queued = 0;
+
+                while (students.hasNext())
+                {
+                    buffer[buffered++] = students.next();
+                    if (buffered == rowsPerStatement)
+                    {
+                        bind(chunk, buffer, buffered);
+                        chunk.addBatch();
+                        queued += buffered;
+                        buffered = 0;
+
+                        if (queued >= batchSize)
+                        {
+                            chunk.executeBatch();
+                            conn.commit();
+                            committedRows += queued;
+                            batches++;
+                            queued = 0;
+                        }
+                    }
+                }
+
+                // Whatever is left: queued full chunks plus a shorter tail statement
+                if (queued > 0)
+                {
+                    chunk.executeBatch();
+                }
+                if (buffered > 0)
+                {
+                    try (PreparedStatement tail = conn.prepareStatement(insertSql(buffered)))
+                    {
+                        bind(tail, buffer, buffered);
+                        tail.executeUpdate();
+                    }
+                }
+                if (queued + buffered > 0)
+                {
+                    conn.commit();
+                    committedRows += queued + buffered;
+                    batches++;
+                }
+            }
+            catch (SQLException e)
+            {
+                conn.rollback();
+                throw new SQLException("Insert failed after " + committedRows + " committed rows: "
+                        + e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
+            }
+            finally
+            {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+
+        return new WriteReport(committedRows, batches, System.nanoTime() - start);
+    }
+
+    static String insertSql(int rows)
+    {
+        StringBuilder sql = new StringBuilder("INSERT INTO students (name, age, email) VALUES ");
+        for (int i = 0; i < rows; i++)
+        {
+            sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+        }
+        return sql.toString();
+    }
+
+    static void bind(PreparedStatement ps, Student[] rows, int count) throws SQLException
+    {
+        int p = 1;
+        for (int i = 0; i < count; i++)
+        {
+            Student s = rows[i];
+            ps.setString(p++, s.name());
+            ps.setObject(p++, s.age(), Types.INTEGER);
+            ps.setString(p++, s.email());
+        }
+    }
+}
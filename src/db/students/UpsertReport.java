@@ -0,0 +1,34 @@
+/**
+ * UpsertReport.java
+ * Result of a bulk upsert: new rows, changed rows, and rows left alone
+ * (unchanged, a conflict in IGNORE mode, or a duplicate email in the input).
+ */
+
+package db.students;
+
+import java.util.concurrent.TimeUnit;
+
+public record UpsertReport(long inserted, long updated, long skipped, long elapsedNanos)
+{
+    public long rows()
+    {
+        return inserted + updated + skipped;
+    }
+
+    public double elapsedSeconds()
+    {
+        return elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    public double rowsPerSecond()
+    {
+        return elapsedNanos == 0 ? 0 : rows() / elapsedSeconds();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d inserted, %d updated, %d skipped, %.3f s (%,.0f rows/s)",
+                inserted, updated, skipped, elapsedSeconds(), rowsPerSecond());
+    }
+}
@@ -0,0 +1,29 @@
+/**
+ * WriteReport.java
+ * Result of a bulk write: how many rows, in how many commits, how fast.
+ * Compare rowsPerSecond() across batch sizes to tune db.batchSize.
+ */
+
+package db.students;
+
+import java.util.concurrent.TimeUnit;
+
+public record WriteReport(long rows, int batches, long elapsedNanos)
+{
+    public double elapsedSeconds()
+    {
+        return elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    public double rowsPerSecond()
+    {
+        return elapsedNanos == 0 ? 0 : rows / elapsedSeconds();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d rows in %d batches, %.3f s (%,.0f rows/s)",
+                rows, batches, elapsedSeconds(), rowsPerSecond());
+    }
+}
@@ -13,31 +13,18 @@
 
 package jdbc.examples;
 
-import java.io.*;
+import db.Config;
 import java.sql.*;
-import java.util.*;
 
 public class Example1
 {
     public static void main(String[] args)
-    { Properties props = new Properties();
-        String filePath = "resources" + File.separator + "config.properties";
-        try (FileInputStream fis = new FileInputStream(filePath))
-        {
-            // Load the properties file
-            props.load(fis);
-        }
-        catch (IOException e)
-        {
-            System.out.println("Could not read config file: " + e.getMessage());
-            return;
-        }
-
-        // Get values from properties file
-        String url = props.getProperty("db.url");
-        String user = props.getProperty("db.user");
-        String password = props.getProperty("db.password");
-
+    {
+        // Shared, cached settings from resources/config.properties
+        Config config = Config.get();
+        String url = config.url();
+        String user = config.user();
+        String password = config.password();
 
         try (Connection conn = DriverManager.getConnection(url, user, password))
         {
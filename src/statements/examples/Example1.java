@@ -1,33 +1,15 @@
 package statements.examples;
 
-import java.io.*;
+import db.Database;
 import java.sql.*;
-import java.util.*;
 
 public class Example1
 {
     public static void main(String[] args)
     {
-        Properties props = new Properties();
-        String filePath = "resources" + File.separator + "config.properties";
-        try (FileInputStream fis = new FileInputStream(filePath))
-        {
-            // Load the properties file
-            props.load(fis);
-        }
-        catch (IOException e)
-        {
-            System.out.println("Could not read config file: " + e.getMessage());
-            return;
-        }
-
-        // Get values from properties file
-        String url = props.getProperty("db.url");
-        String user = props.getProperty("db.user");
-        String password = props.getProperty("db.password");
         String sql = "INSERT INTO students (name, age, email) VALUES (?, ?, ?)";
 
-        try (Connection conn = DriverManager.getConnection(url, user, password);
+        try (Connection conn = Database.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql))
         {
 
@@ -1,31 +1,12 @@
 package statements.examples;
 
-import java.io.*;
+import db.Database;
 import java.sql.*;
-import java.util.*;
 
 public class Example4
 {
     public static void main(String[] args)
     {
-        Properties props = new Properties();
-        String filePath = "resources" + File.separator + "config.properties";
-
-        // Load properties
-        try (FileInputStream fis = new FileInputStream(filePath))
-        {
-            props.load(fis);
-        }
-        catch (IOException e)
-        {
-            System.out.println("Could not read config file: " + e.getMessage());
-            return;
-        }
-
-        String url = props.getProperty("db.url");
-        String user = props.getProperty("db.user");
-        String password = props.getProperty("db.password");
-
         String insert1 = "INSERT INTO students (name, age, email) VALUES ('Sara', 22, 'sara@example.com')";
         String insert2 = "INSERT INTO invalid_table (name) VALUES ('ERROR')"; // intentional error
 
@@ -34,7 +15,7 @@ public class Example4
 
         try
         {
-            conn = DriverManager.getConnection(url, user, password);
+            conn = Database.getConnection();
             conn.setAutoCommit(false); // start transaction
             stmt = conn.createStatement();
 